@@ -0,0 +1,99 @@
+package com.biit.kafka.plugins;
+
+/*-
+ * #%L
+ * Frustration on Teamworking Organization Statistics Generator
+ * %%
+ * Copyright (C) 2024 - 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.drools.form.DroolsForm;
+import com.biit.drools.form.DroolsSubmittedForm;
+import com.biit.drools.form.provider.DroolsFormProvider;
+import com.biit.factmanager.dto.FactDTO;
+import com.biit.usermanager.dto.TeamDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.FileNotFoundException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rebuilds the organization and team results from the Fact Manager, as done when an aggregate is not cached, for different number of users.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class FrustrationOnTeamworkingAggregationBenchmark {
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    private int users;
+
+    private FrustrationOnTeamworkingBenchmarkData data;
+    private FrustrationOnTeamworkingAggregator aggregator;
+    private FrustrationOnTeamworkingEventController controller;
+    private DroolsForm droolsForm;
+    private TeamDTO team;
+
+    @Setup(Level.Trial)
+    public void setUp() throws FileNotFoundException, JsonProcessingException {
+        data = new FrustrationOnTeamworkingBenchmarkData(users);
+        aggregator = new FrustrationOnTeamworkingAggregator(0, 1000, 0, 1);
+        controller = new FrustrationOnTeamworkingEventController(null, null, data.getFactProvider(), null,
+                FrustrationOnTeamworkingBenchmarkData.TOPIC, "", false, false, data.getMembershipCache(), aggregator, null, null, null, null, null, null,
+                new FrustrationOnTeamworkingMetrics(null));
+        droolsForm = DroolsFormProvider.createStructure(DroolsSubmittedForm.getFromJson(data.getFormJson()));
+        team = new TeamDTO();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        aggregator.destroy();
+    }
+
+    @Benchmark
+    public DroolsForm populateOrganizationForms() throws JsonProcessingException {
+        controller.populateOrganizationForms(droolsForm, null);
+        return droolsForm;
+    }
+
+    @Benchmark
+    public DroolsForm populateTeamForms() throws JsonProcessingException {
+        controller.populateTeamForms(droolsForm, team);
+        return droolsForm;
+    }
+
+    @Benchmark
+    public FrustrationOnTeamworkingAggregate decodeFacts() throws JsonProcessingException {
+        return aggregator.aggregate(data.getFacts(), FactDTO::getCreatedBy, FactDTO::getValue);
+    }
+}
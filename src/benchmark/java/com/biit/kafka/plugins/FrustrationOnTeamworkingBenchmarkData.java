@@ -0,0 +1,128 @@
+package com.biit.kafka.plugins;
+
+/*-
+ * #%L
+ * Frustration on Teamworking Organization Statistics Generator
+ * %%
+ * Copyright (C) 2024 - 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.factmanager.client.SearchParameters;
+import com.biit.factmanager.dto.FactDTO;
+import com.biit.kafka.config.ObjectMapperFactory;
+import com.biit.usermanager.dto.TeamDTO;
+import com.biit.usermanager.dto.UserDTO;
+import com.biit.utils.file.FileReader;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.FileNotFoundException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Synthetic facts generated from the form used on tests, and Fact Manager and User Manager providers that return them without any
+ * connection. Facts share a small pool of submitted forms with random variables, so large populations can be generated without exhausting
+ * the memory, but each fact is still decoded on each aggregation.
+ */
+public class FrustrationOnTeamworkingBenchmarkData {
+    public static final String FORM_LABEL = "The 5 Frustrations on Teamworking";
+    public static final String DROOLS_FORM_FILE_PATH = "drools/The 5 Frustrations on Teamworking.json";
+    public static final String TOPIC = "frustration";
+    private static final String FORM_VARIABLES = "formVariables";
+    private static final int DISTINCT_FORMS = 64;
+    private static final double MAX_SCORE = 10;
+    private static final long SEED = 42;
+
+    private final String formJson;
+    private final List<FactDTO> facts;
+    private final List<UserDTO> users;
+
+    public FrustrationOnTeamworkingBenchmarkData(int population) throws FileNotFoundException, JsonProcessingException {
+        this.formJson = FileReader.getResource(DROOLS_FORM_FILE_PATH, StandardCharsets.UTF_8);
+        final List<String> forms = getForms(formJson);
+        this.facts = new ArrayList<>(population);
+        this.users = new ArrayList<>(population);
+        for (int i = 0; i < population; i++) {
+            final FactDTO fact = new FactDTO();
+            fact.setCreatedBy("user" + i);
+            fact.setValue(forms.get(i % forms.size()));
+            facts.add(fact);
+            final UserDTO user = new UserDTO();
+            user.setUsername(fact.getCreatedBy());
+            users.add(user);
+        }
+    }
+
+    private static List<String> getForms(String formJson) throws JsonProcessingException {
+        final ObjectMapper objectMapper = ObjectMapperFactory.getObjectMapper();
+        final Random random = new Random(SEED);
+        final List<String> forms = new ArrayList<>(DISTINCT_FORMS);
+        for (int i = 0; i < DISTINCT_FORMS; i++) {
+            final ObjectNode form = (ObjectNode) objectMapper.readTree(formJson);
+            //Variables are stored as an embedded json.
+            final JsonNode formVariables = objectMapper.readTree(form.get(FORM_VARIABLES).asText());
+            final Iterator<JsonNode> elements = formVariables.elements();
+            while (elements.hasNext()) {
+                final ObjectNode variables = (ObjectNode) elements.next();
+                final Iterator<Map.Entry<String, JsonNode>> values = variables.fields();
+                while (values.hasNext()) {
+                    final Map.Entry<String, JsonNode> value = values.next();
+                    if (value.getValue().isNumber()) {
+                        value.setValue(variables.numberNode(random.nextDouble() * MAX_SCORE));
+                    }
+                }
+            }
+            form.put(FORM_VARIABLES, objectMapper.writeValueAsString(formVariables));
+            forms.add(objectMapper.writeValueAsString(form));
+        }
+        return forms;
+    }
+
+    public String getFormJson() {
+        return formJson;
+    }
+
+    public List<FactDTO> getFacts() {
+        return facts;
+    }
+
+    public FrustrationOnTeamworkingFactProvider getFactProvider() {
+        return new FrustrationOnTeamworkingFactProvider(null, null, null, 0) {
+            @Override
+            public void get(Map<SearchParameters, Object> filter, List<String> users, FactPageConsumer consumer) throws JsonProcessingException {
+                consumer.accept(facts);
+            }
+        };
+    }
+
+    public FrustrationOnTeamworkingMembershipCache getMembershipCache() {
+        return new FrustrationOnTeamworkingMembershipCache(null, null, null, 1, 0) {
+            @Override
+            public Collection<UserDTO> findMembers(TeamDTO team) {
+                return users;
+            }
+        };
+    }
+}
@@ -0,0 +1,85 @@
+package com.biit.kafka.plugins;
+
+/*-
+ * #%L
+ * Frustration on Teamworking Organization Statistics Generator
+ * %%
+ * Copyright (C) 2024 - 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.drools.form.DroolsForm;
+import com.biit.drools.form.DroolsSubmittedForm;
+import com.biit.drools.form.provider.DroolsFormProvider;
+import com.biit.kafka.config.ObjectMapperFactory;
+import com.biit.kafka.events.Event;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.FileNotFoundException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decodes a received event and encodes a result, as done for each event independently of the number of users.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class FrustrationOnTeamworkingEventBenchmark {
+    private static final String USER = "user";
+
+    private FrustrationOnTeamworkingEventConverter converter;
+    private Event event;
+    private DroolsForm droolsForm;
+    private UUID sessionId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws FileNotFoundException, JsonProcessingException {
+        final FrustrationOnTeamworkingBenchmarkData data = new FrustrationOnTeamworkingBenchmarkData(1);
+        final DroolsSubmittedForm droolsSubmittedForm = DroolsSubmittedForm.getFromJson(data.getFormJson());
+        event = new Event(droolsSubmittedForm);
+        event.setCreatedBy(USER);
+        event.setTag(FrustrationOnTeamworkingBenchmarkData.FORM_LABEL);
+        droolsForm = DroolsFormProvider.createStructure(droolsSubmittedForm);
+        droolsForm.setTag(FrustrationOnTeamworkingEventConverter.FORM_ORGANIZATION_OUTPUT);
+        converter = new FrustrationOnTeamworkingEventConverter();
+        sessionId = UUID.randomUUID();
+    }
+
+    @Benchmark
+    public FrustrationOnTeamworkingEventContext decodeEvent() throws JsonProcessingException {
+        return FrustrationOnTeamworkingEventContext.of(event, FrustrationOnTeamworkingBenchmarkData.FORM_LABEL);
+    }
+
+    @Benchmark
+    public byte[] encodeEvent() throws JsonProcessingException {
+        return ObjectMapperFactory.getObjectMapper().writeValueAsBytes(converter.getEvent(droolsForm, USER, sessionId));
+    }
+}
@@ -0,0 +1,276 @@
+package com.biit.kafka.plugins;
+
+/*-
+ * #%L
+ * Frustration on Teamworking Organization Statistics Generator
+ * %%
+ * Copyright (C) 2024 - 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Count, mean, variance, minimum and maximum of the form variables, stored on primitive arrays. Each element/variable pair is interned to a
+ * dense slot the first time that appears, and the values are accumulated on the slot without boxing using Welford's algorithm, that is
+ * numerically stable on a single pass and allows to retract values. The {@link Map} shape used by
+ * {@link com.biit.drools.form.DroolsSubmittedForm#getFormVariables()} is only built when the results are requested.
+ * This class is not thread safe.
+ */
+public class FrustrationOnTeamworkingAccumulator {
+    public static final String COUNT_SUFFIX = "Count";
+    public static final String STANDARD_DEVIATION_SUFFIX = "StandardDeviation";
+    public static final String MIN_SUFFIX = "Min";
+    public static final String MAX_SUFFIX = "Max";
+
+    private static final int INITIAL_CAPACITY = 32;
+
+    private final Map<String, Map<String, Integer>> slots = new HashMap<>();
+    private String[] elements = new String[INITIAL_CAPACITY];
+    private String[] variables = new String[INITIAL_CAPACITY];
+    private long[] counts = new long[INITIAL_CAPACITY];
+    private double[] means = new double[INITIAL_CAPACITY];
+    //Sum of squares of differences from the mean.
+    private double[] squares = new double[INITIAL_CAPACITY];
+    private double[] mins = new double[INITIAL_CAPACITY];
+    private double[] maxs = new double[INITIAL_CAPACITY];
+    //Extremes that cannot be known after retracting a value.
+    private boolean[] staleExtremes = new boolean[INITIAL_CAPACITY];
+    private int size = 0;
+
+    /**
+     * Gets the slot assigned to a variable. If the variable has no slot yet, a new one is created.
+     *
+     * @param element  the form element.
+     * @param variable the variable.
+     * @return the slot.
+     */
+    public int getSlot(String element, String variable) {
+        final Map<String, Integer> elementSlots = slots.computeIfAbsent(element, k -> new HashMap<>());
+        final Integer slot = elementSlots.get(variable);
+        if (slot != null) {
+            return slot;
+        }
+        if (size == counts.length) {
+            final int capacity = size * 2;
+            elements = Arrays.copyOf(elements, capacity);
+            variables = Arrays.copyOf(variables, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+            means = Arrays.copyOf(means, capacity);
+            squares = Arrays.copyOf(squares, capacity);
+            mins = Arrays.copyOf(mins, capacity);
+            maxs = Arrays.copyOf(maxs, capacity);
+            staleExtremes = Arrays.copyOf(staleExtremes, capacity);
+        }
+        elements[size] = element;
+        variables[size] = variable;
+        reset(size);
+        elementSlots.put(variable, size);
+        return size++;
+    }
+
+    private void reset(int slot) {
+        counts[slot] = 0;
+        means[slot] = 0;
+        squares[slot] = 0;
+        resetExtremes(slot);
+    }
+
+    public void add(int slot, double value) {
+        counts[slot]++;
+        final double delta = value - means[slot];
+        means[slot] += delta / counts[slot];
+        squares[slot] += delta * (value - means[slot]);
+        updateExtremes(slot, value);
+    }
+
+    public void remove(int slot, double value) {
+        if (counts[slot] <= 1) {
+            //Avoid rounding residues when nobody has this variable.
+            reset(slot);
+            return;
+        }
+        final double previousMean = means[slot];
+        counts[slot]--;
+        means[slot] -= (value - previousMean) / counts[slot];
+        squares[slot] = Math.max(0, squares[slot] - (value - previousMean) * (value - means[slot]));
+        if (value <= mins[slot] || value >= maxs[slot]) {
+            staleExtremes[slot] = true;
+        }
+    }
+
+    public void add(String element, String variable, double value) {
+        add(getSlot(element, variable), value);
+    }
+
+    /**
+     * Adds the values of other accumulator into this one.
+     *
+     * @param accumulator the accumulator to merge.
+     */
+    public void merge(FrustrationOnTeamworkingAccumulator accumulator) {
+        for (int i = 0; i < accumulator.size; i++) {
+            if (accumulator.counts[i] == 0) {
+                continue;
+            }
+            final int slot = getSlot(accumulator.elements[i], accumulator.variables[i]);
+            final long count = counts[slot] + accumulator.counts[i];
+            final double delta = accumulator.means[i] - means[slot];
+            means[slot] += delta * accumulator.counts[i] / count;
+            squares[slot] += accumulator.squares[i] + delta * delta * counts[slot] * accumulator.counts[i] / count;
+            counts[slot] = count;
+            mins[slot] = Math.min(mins[slot], accumulator.mins[i]);
+            maxs[slot] = Math.max(maxs[slot], accumulator.maxs[i]);
+            staleExtremes[slot] |= accumulator.staleExtremes[i];
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String getElement(int slot) {
+        return elements[slot];
+    }
+
+    public String getVariable(int slot) {
+        return variables[slot];
+    }
+
+    public long getCount(int slot) {
+        return counts[slot];
+    }
+
+    public double getMean(int slot) {
+        return means[slot];
+    }
+
+    /**
+     * Population variance of the values.
+     *
+     * @param slot the slot.
+     * @return the variance.
+     */
+    public double getVariance(int slot) {
+        return counts[slot] > 0 ? squares[slot] / counts[slot] : 0;
+    }
+
+    public double getMin(int slot) {
+        return mins[slot];
+    }
+
+    public double getMax(int slot) {
+        return maxs[slot];
+    }
+
+    /**
+     * After retracting a value that was the minimum or the maximum, the new extremes must be calculated again from the remaining values
+     * using {@link #resetExtremes(int)} and {@link #updateExtremes(int, double)}.
+     *
+     * @param slot the slot.
+     * @return true if the extremes are not valid.
+     */
+    public boolean hasStaleExtremes(int slot) {
+        return staleExtremes[slot];
+    }
+
+    public void resetExtremes(int slot) {
+        mins[slot] = Double.POSITIVE_INFINITY;
+        maxs[slot] = Double.NEGATIVE_INFINITY;
+        staleExtremes[slot] = false;
+    }
+
+    public void updateExtremes(int slot, double value) {
+        mins[slot] = Math.min(mins[slot], value);
+        maxs[slot] = Math.max(maxs[slot], value);
+    }
+
+    /**
+     * Writes the accumulated values in a compact binary format.
+     *
+     * @param output where to write.
+     * @throws IOException if cannot be written.
+     */
+    public void write(DataOutput output) throws IOException {
+        output.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            output.writeUTF(elements[i]);
+            output.writeUTF(variables[i]);
+            output.writeLong(counts[i]);
+            output.writeDouble(means[i]);
+            output.writeDouble(squares[i]);
+            output.writeDouble(mins[i]);
+            output.writeDouble(maxs[i]);
+            output.writeBoolean(staleExtremes[i]);
+        }
+    }
+
+    /**
+     * Reads an accumulator written by {@link #write(DataOutput)}.
+     *
+     * @param input where to read.
+     * @return the accumulator.
+     * @throws IOException if cannot be read.
+     */
+    public static FrustrationOnTeamworkingAccumulator read(DataInput input) throws IOException {
+        final FrustrationOnTeamworkingAccumulator accumulator = new FrustrationOnTeamworkingAccumulator();
+        final int slots = input.readInt();
+        for (int i = 0; i < slots; i++) {
+            final int slot = accumulator.getSlot(input.readUTF(), input.readUTF());
+            accumulator.counts[slot] = input.readLong();
+            accumulator.means[slot] = input.readDouble();
+            accumulator.squares[slot] = input.readDouble();
+            accumulator.mins[slot] = input.readDouble();
+            accumulator.maxs[slot] = input.readDouble();
+            accumulator.staleExtremes[slot] = input.readBoolean();
+        }
+        return accumulator;
+    }
+
+    /**
+     * Materializes the averages of all variables that have values. Each average is calculated only with the users that have the variable.
+     *
+     * @param formLabel   the label of the submitted form, as used on the element names.
+     * @param outputLabel the label that will replace the form label on the element names.
+     * @param spread      if true, the count, standard deviation, minimum and maximum are also included as variables with the suffixes
+     *                    {@link #COUNT_SUFFIX}, {@link #STANDARD_DEVIATION_SUFFIX}, {@link #MIN_SUFFIX} and {@link #MAX_SUFFIX}.
+     * @return a map with the shape of {@link com.biit.drools.form.DroolsSubmittedForm#getFormVariables()}.
+     */
+    public Map<String, Map<String, Object>> toFormVariables(String formLabel, String outputLabel, boolean spread) {
+        final Map<String, Map<String, Object>> formVariables = new HashMap<>();
+        final Map<String, String> correctedElements = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            if (counts[i] > 0) {
+                //Correct form name.
+                final String element = correctedElements.computeIfAbsent(elements[i], k -> k.replace(formLabel, outputLabel));
+                final Map<String, Object> variableValues = formVariables.computeIfAbsent(element, k -> new HashMap<>());
+                variableValues.put(variables[i], means[i]);
+                if (spread) {
+                    variableValues.put(variables[i] + COUNT_SUFFIX, (double) counts[i]);
+                    variableValues.put(variables[i] + STANDARD_DEVIATION_SUFFIX, Math.sqrt(getVariance(i)));
+                    variableValues.put(variables[i] + MIN_SUFFIX, mins[i]);
+                    variableValues.put(variables[i] + MAX_SUFFIX, maxs[i]);
+                }
+            }
+        }
+        return formVariables;
+    }
+}
@@ -0,0 +1,53 @@
+package com.biit.kafka.plugins;
+
+/*-
+ * #%L
+ * Frustration on Teamworking Organization Statistics Generator
+ * %%
+ * Copyright (C) 2024 - 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Acknowledges the records of a listener once their results have been sent. Results are sent asynchronously, so records can be completed
+ * out of order, but are acknowledged in the order they were received, and the committed offset never skips a record with results pending.
+ * Requires the manual acknowledgment mode, set by the {@link #CONTAINER_POST_PROCESSOR}.
+ */
+public class FrustrationOnTeamworkingAcknowledgments {
+    public static final String CONTAINER_POST_PROCESSOR = "frustrationOnTeamworkingManualAcknowledgment";
+
+    private CompletableFuture<Void> acknowledged = CompletableFuture.completedFuture(null);
+
+    /**
+     * Acknowledges the records when processed, and after all records received before.
+     *
+     * @param processed      completed when the results of the records are sent.
+     * @param acknowledgment the acknowledgment of the records.
+     */
+    public synchronized void acknowledge(CompletableFuture<?> processed, Acknowledgment acknowledgment) {
+        acknowledged = CompletableFuture.allOf(acknowledged, processed).handle((result, e) -> {
+            if (e != null) {
+                FrustrationOnTeamworkingEventsLogger.errorMessage(this.getClass(), e);
+            }
+            acknowledgment.acknowledge();
+            return null;
+        });
+    }
+}
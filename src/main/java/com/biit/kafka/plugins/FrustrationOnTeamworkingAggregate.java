@@ -0,0 +1,284 @@
+package com.biit.kafka.plugins;
+
+/*-
+ * #%L
+ * Frustration on Teamworking Organization Statistics Generator
+ * %%
+ * Copyright (C) 2024 - 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Running statistics of the form variables submitted by the users of one organization or team. Only the latest submission of each user is
+ * taken into account: when a user submits the form again, its previous contribution is retracted before adding the new one. Therefore,
+ * updating the averages costs as many operations as variables has the form, and not as many as users has the organization.
+ */
+public class FrustrationOnTeamworkingAggregate {
+
+    private final FrustrationOnTeamworkingAccumulator accumulator = new FrustrationOnTeamworkingAccumulator();
+    private final Map<String, Contribution> contributions = new HashMap<>();
+    private final LocalDateTime createdAt;
+
+    public FrustrationOnTeamworkingAggregate() {
+        this(LocalDateTime.now());
+    }
+
+    public FrustrationOnTeamworkingAggregate(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * Replaces the contribution of a user by the variables of its new submission.
+     *
+     * @param user          the user that has submitted the form.
+     * @param formVariables the variables of the submitted form as element --> variable --> value.
+     */
+    public synchronized void setContribution(String user, Map<String, Map<String, Object>> formVariables) {
+        if (formVariables == null) {
+            removeContribution(user);
+            return;
+        }
+        final Contribution contribution = new Contribution();
+        formVariables.forEach((element, variableValues) -> {
+            if (variableValues != null) {
+                variableValues.forEach((variable, value) -> {
+                    if (value instanceof Number) {
+                        contribution.add(accumulator.getSlot(element, variable), ((Number) value).doubleValue());
+                    }
+                });
+            }
+        });
+        setContribution(user, contribution);
+    }
+
+    /**
+     * Replaces the contribution of a user by the variables of its new submission, reading them directly from the json of the form.
+     *
+     * @param user     the user that has submitted the form.
+     * @param formJson the submitted form as json.
+     * @throws JsonProcessingException if the json is invalid.
+     */
+    public synchronized void parseContribution(String user, String formJson) throws JsonProcessingException {
+        final Contribution contribution = new Contribution();
+        FrustrationOnTeamworkingFormVariablesReader.read(formJson, (element, variable, value) ->
+                contribution.add(accumulator.getSlot(element, variable), value));
+        setContribution(user, contribution);
+    }
+
+    private void setContribution(String user, Contribution contribution) {
+        removeContribution(user);
+        for (int i = 0; i < contribution.size; i++) {
+            accumulator.add(contribution.slots[i], contribution.values[i]);
+        }
+        contributions.put(user, contribution);
+    }
+
+    /**
+     * Retracts the contribution of a user.
+     *
+     * @param user the user.
+     */
+    public synchronized void removeContribution(String user) {
+        final Contribution contribution = contributions.remove(user);
+        if (contribution == null) {
+            return;
+        }
+        for (int i = 0; i < contribution.size; i++) {
+            accumulator.remove(contribution.slots[i], contribution.values[i]);
+        }
+    }
+
+    /**
+     * Adds the contributions of other aggregate. If a user has contributions on both, the one from the merged aggregate is kept.
+     *
+     * @param aggregate the aggregate to merge.
+     */
+    public synchronized void merge(FrustrationOnTeamworkingAggregate aggregate) {
+        synchronized (aggregate) {
+            //Slots are not shared between aggregates.
+            final int[] translatedSlots = new int[aggregate.accumulator.size()];
+            for (int i = 0; i < translatedSlots.length; i++) {
+                translatedSlots[i] = accumulator.getSlot(aggregate.accumulator.getElement(i), aggregate.accumulator.getVariable(i));
+            }
+            aggregate.contributions.forEach((user, contribution) -> {
+                final Contribution translatedContribution = new Contribution();
+                for (int i = 0; i < contribution.size; i++) {
+                    translatedContribution.add(translatedSlots[contribution.slots[i]], contribution.values[i]);
+                }
+                setContribution(user, translatedContribution);
+            });
+        }
+    }
+
+    /**
+     * Creates an aggregate with the contributions of some users only, i.e. the members of a team from the aggregate of its organization.
+     * The contributions are shared between both aggregates, as they are never modified.
+     *
+     * @param users selects the users.
+     * @return the new aggregate.
+     */
+    public synchronized FrustrationOnTeamworkingAggregate subset(Predicate<String> users) {
+        final FrustrationOnTeamworkingAggregate aggregate = new FrustrationOnTeamworkingAggregate(createdAt);
+        //Same slots on both aggregates.
+        for (int i = 0; i < accumulator.size(); i++) {
+            aggregate.accumulator.getSlot(accumulator.getElement(i), accumulator.getVariable(i));
+        }
+        contributions.forEach((user, contribution) -> {
+            if (users.test(user)) {
+                aggregate.setContribution(user, contribution);
+            }
+        });
+        return aggregate;
+    }
+
+    public synchronized int getContributors() {
+        return contributions.size();
+    }
+
+    /**
+     * Gets the average of each variable among the users that have it.
+     *
+     * @param formLabel   the label of the submitted form, as used on the element names.
+     * @param outputLabel the label that will replace the form label on the element names.
+     * @return a map with the shape of {@link com.biit.drools.form.DroolsSubmittedForm#getFormVariables()}.
+     */
+    public synchronized Map<String, Map<String, Object>> getAverages(String formLabel, String outputLabel) {
+        return accumulator.toFormVariables(formLabel, outputLabel, false);
+    }
+
+    /**
+     * Gets the average of each variable among the users that have it, and also its count, standard deviation, minimum and maximum.
+     *
+     * @param formLabel   the label of the submitted form, as used on the element names.
+     * @param outputLabel the label that will replace the form label on the element names.
+     * @return a map with the shape of {@link com.biit.drools.form.DroolsSubmittedForm#getFormVariables()}.
+     * @see FrustrationOnTeamworkingAccumulator#toFormVariables(String, String, boolean)
+     */
+    public synchronized Map<String, Map<String, Object>> getStatistics(String formLabel, String outputLabel) {
+        refreshExtremes();
+        return accumulator.toFormVariables(formLabel, outputLabel, true);
+    }
+
+    private void refreshExtremes() {
+        final boolean[] staleSlots = new boolean[accumulator.size()];
+        boolean stale = false;
+        for (int i = 0; i < staleSlots.length; i++) {
+            if (accumulator.hasStaleExtremes(i)) {
+                accumulator.resetExtremes(i);
+                staleSlots[i] = true;
+                stale = true;
+            }
+        }
+        if (!stale) {
+            return;
+        }
+        for (Contribution contribution : contributions.values()) {
+            for (int i = 0; i < contribution.size; i++) {
+                if (staleSlots[contribution.slots[i]]) {
+                    accumulator.updateExtremes(contribution.slots[i], contribution.values[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the aggregate, including the contribution of each user, in a compact binary format.
+     *
+     * @param output where to write.
+     * @throws IOException if cannot be written.
+     */
+    public synchronized void write(DataOutput output) throws IOException {
+        output.writeUTF(createdAt.toString());
+        output.writeInt(accumulator.size());
+        for (int i = 0; i < accumulator.size(); i++) {
+            output.writeUTF(accumulator.getElement(i));
+            output.writeUTF(accumulator.getVariable(i));
+        }
+        output.writeInt(contributions.size());
+        for (Map.Entry<String, Contribution> contribution : contributions.entrySet()) {
+            output.writeBoolean(contribution.getKey() != null);
+            if (contribution.getKey() != null) {
+                output.writeUTF(contribution.getKey());
+            }
+            output.writeInt(contribution.getValue().size);
+            for (int i = 0; i < contribution.getValue().size; i++) {
+                output.writeInt(contribution.getValue().slots[i]);
+                output.writeDouble(contribution.getValue().values[i]);
+            }
+        }
+    }
+
+    /**
+     * Reads an aggregate written by {@link #write(DataOutput)}.
+     *
+     * @param input where to read.
+     * @return the aggregate.
+     * @throws IOException if cannot be read.
+     */
+    public static FrustrationOnTeamworkingAggregate read(DataInput input) throws IOException {
+        final FrustrationOnTeamworkingAggregate aggregate = new FrustrationOnTeamworkingAggregate(LocalDateTime.parse(input.readUTF()));
+        final int[] slots = new int[input.readInt()];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = aggregate.accumulator.getSlot(input.readUTF(), input.readUTF());
+        }
+        final int contributors = input.readInt();
+        for (int i = 0; i < contributors; i++) {
+            final String user = input.readBoolean() ? input.readUTF() : null;
+            final Contribution contribution = new Contribution();
+            final int size = input.readInt();
+            for (int j = 0; j < size; j++) {
+                contribution.add(slots[input.readInt()], input.readDouble());
+            }
+            aggregate.setContribution(user, contribution);
+        }
+        return aggregate;
+    }
+
+    /**
+     * Values submitted by one user, stored by accumulator slot.
+     */
+    private static final class Contribution {
+        private static final int INITIAL_CAPACITY = 32;
+        private int[] slots = new int[INITIAL_CAPACITY];
+        private double[] values = new double[INITIAL_CAPACITY];
+        private int size = 0;
+
+        private void add(int slot, double value) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            slots[size] = slot;
+            values[size] = value;
+            size++;
+        }
+    }
+}
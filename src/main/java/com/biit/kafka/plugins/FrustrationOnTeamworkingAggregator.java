@@ -0,0 +1,362 @@
+package com.biit.kafka.plugins;
+
+/*-
+ * #%L
+ * Frustration on Teamworking Organization Statistics Generator
+ * %%
+ * Copyright (C) 2024 - 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Keeps the running aggregates of each organization and team in memory. An aggregate is only rebuilt from the Fact Manager on cold start
+ * or when it is older than the reconciliation period. When rebuilt, large fact lists are decoded in parallel on partial aggregates that
+ * are merged at the end. The teams of a user are updated concurrently on a separate pool, as they mostly wait for the Fact Manager.
+ * Optionally, the organizations are divided on units, using the unit of the latest submission of each user. The pools are only started
+ * when first needed.
+ */
+@Component
+@ConditionalOnExpression("${spring.kafka.enabled:false}")
+public class FrustrationOnTeamworkingAggregator implements DisposableBean {
+    private static final char UNIT_SEPARATOR = '\u001F';
+
+    private final long reconciliationMinutes;
+    private final int parallelThreshold;
+    private final int parallelism;
+    private final int teamThreads;
+    private volatile ForkJoinPool pool;
+    private volatile ExecutorService fanOutExecutor;
+    private volatile boolean destroyed = false;
+
+    private final Map<String, FrustrationOnTeamworkingAggregate> organizationAggregates = new ConcurrentHashMap<>();
+    private final Map<String, FrustrationOnTeamworkingAggregate> teamAggregates = new ConcurrentHashMap<>();
+    private final Map<String, FrustrationOnTeamworkingAggregate> unitAggregates = new ConcurrentHashMap<>();
+    //User --> unit, by organization.
+    private final Map<String, Map<String, String>> units = new ConcurrentHashMap<>();
+
+    public FrustrationOnTeamworkingAggregator(@Value("${spring.kafka.frustration.aggregation.reconciliation.minutes:60}") long reconciliationMinutes,
+                                              @Value("${spring.kafka.frustration.aggregation.parallel.threshold:1000}") int parallelThreshold,
+                                              @Value("${spring.kafka.frustration.aggregation.parallel.threads:0}") int parallelThreads,
+                                              @Value("${spring.kafka.frustration.aggregation.teams.threads:4}") int teamThreads) {
+        this.reconciliationMinutes = reconciliationMinutes;
+        this.parallelThreshold = parallelThreshold;
+        this.parallelism = parallelThreads > 0 ? parallelThreads : Runtime.getRuntime().availableProcessors();
+        this.teamThreads = teamThreads;
+    }
+
+    private ForkJoinPool getPool() {
+        if (pool == null && parallelism > 1) {
+            synchronized (this) {
+                if (pool == null && !destroyed) {
+                    pool = new ForkJoinPool(parallelism);
+                }
+            }
+        }
+        return pool;
+    }
+
+    private ExecutorService getFanOutExecutor() {
+        if (fanOutExecutor == null && teamThreads > 1) {
+            synchronized (this) {
+                if (fanOutExecutor == null && !destroyed) {
+                    fanOutExecutor = Executors.newFixedThreadPool(teamThreads, runnable -> {
+                        final Thread thread = new Thread(runnable, "frustration-teams");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+            }
+        }
+        return fanOutExecutor;
+    }
+
+    /**
+     * Builds an aggregate from the latest submission of each user. Lists larger than the parallel threshold are split between the
+     * threads of the pool.
+     *
+     * @param facts      the submissions.
+     * @param userGetter gets the user that has submitted a fact.
+     * @param formGetter gets the submitted form as json.
+     * @param <T>        the type of the facts.
+     * @return the aggregate.
+     * @throws JsonProcessingException if a fact cannot be parsed.
+     */
+    public <T> FrustrationOnTeamworkingAggregate aggregate(List<T> facts, Function<T, String> userGetter, Function<T, String> formGetter)
+            throws JsonProcessingException {
+        final ForkJoinPool aggregationPool = facts.size() < parallelThreshold ? null : getPool();
+        if (aggregationPool == null) {
+            return aggregate(facts, userGetter, formGetter, 0, facts.size());
+        }
+        final int chunkSize = (facts.size() + parallelism - 1) / parallelism;
+        final List<Future<FrustrationOnTeamworkingAggregate>> partialAggregates = new ArrayList<>();
+        for (int start = 0; start < facts.size(); start += chunkSize) {
+            final int from = start;
+            final int to = Math.min(start + chunkSize, facts.size());
+            partialAggregates.add(aggregationPool.submit(() -> aggregate(facts, userGetter, formGetter, from, to)));
+        }
+        //Merged in order, so later facts of a user replace earlier ones as on the sequential path.
+        final FrustrationOnTeamworkingAggregate aggregate = new FrustrationOnTeamworkingAggregate();
+        try {
+            for (Future<FrustrationOnTeamworkingAggregate> partialAggregate : partialAggregates) {
+                aggregate.merge(partialAggregate.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            partialAggregates.forEach(partialAggregate -> partialAggregate.cancel(true));
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            partialAggregates.forEach(partialAggregate -> partialAggregate.cancel(true));
+            if (e.getCause() instanceof JsonProcessingException) {
+                throw (JsonProcessingException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        return aggregate;
+    }
+
+    /**
+     * Runs a task for each item concurrently, i.e. to update all the teams of a user. The first item is run on the calling thread.
+     *
+     * @param items the items.
+     * @param task  the task to run for each item.
+     * @param <T>   the type of the items.
+     * @param <R>   the type of the results.
+     * @return the results in the same order as the items.
+     */
+    public <T, R> List<R> fanOut(List<T> items, Function<T, R> task) {
+        final ExecutorService executor = items.size() <= 1 ? null : getFanOutExecutor();
+        if (executor == null) {
+            return items.stream().map(task).toList();
+        }
+        final List<Future<R>> futures = new ArrayList<>(items.size() - 1);
+        for (int i = 1; i < items.size(); i++) {
+            final T item = items.get(i);
+            futures.add(executor.submit(() -> task.apply(item)));
+        }
+        final List<R> results = new ArrayList<>(items.size());
+        try {
+            results.add(task.apply(items.get(0)));
+            for (Future<R> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException(e.getCause());
+        }
+        return results;
+    }
+
+    private <T> FrustrationOnTeamworkingAggregate aggregate(List<T> facts, Function<T, String> userGetter, Function<T, String> formGetter,
+                                                            int from, int to) throws JsonProcessingException {
+        final FrustrationOnTeamworkingAggregate aggregate = new FrustrationOnTeamworkingAggregate();
+        for (int i = from; i < to; i++) {
+            aggregate.parseContribution(userGetter.apply(facts.get(i)), formGetter.apply(facts.get(i)));
+        }
+        return aggregate;
+    }
+
+    /**
+     * Gets the running aggregate of an organization.
+     *
+     * @param organization the organization name.
+     * @return the aggregate or null if must be rebuilt from the Fact Manager.
+     */
+    public FrustrationOnTeamworkingAggregate getOrganizationAggregate(String organization) {
+        return get(organizationAggregates, organization);
+    }
+
+    /**
+     * Gets the running aggregate of an organization even if it is pending of reconciliation, i.e. when the Fact Manager is unavailable.
+     *
+     * @param organization the organization name.
+     * @return the aggregate or null if never built.
+     */
+    public FrustrationOnTeamworkingAggregate getCachedOrganizationAggregate(String organization) {
+        return organizationAggregates.get(getKey(organization));
+    }
+
+    public void setOrganizationAggregate(String organization, FrustrationOnTeamworkingAggregate aggregate) {
+        organizationAggregates.put(getKey(organization), aggregate);
+    }
+
+    /**
+     * Gets the running aggregate of a team.
+     *
+     * @param team the team id.
+     * @return the aggregate or null if must be rebuilt from the Fact Manager.
+     */
+    public FrustrationOnTeamworkingAggregate getTeamAggregate(String team) {
+        return get(teamAggregates, team);
+    }
+
+    /**
+     * Gets the running aggregate of a team even if it is pending of reconciliation, i.e. when the Fact Manager is unavailable.
+     *
+     * @param team the team id.
+     * @return the aggregate or null if never built or the members of the team have changed.
+     */
+    public FrustrationOnTeamworkingAggregate getCachedTeamAggregate(String team) {
+        return teamAggregates.get(getKey(team));
+    }
+
+    public void setTeamAggregate(String team, FrustrationOnTeamworkingAggregate aggregate) {
+        teamAggregates.put(getKey(team), aggregate);
+    }
+
+    /**
+     * Gets the running aggregate of a unit.
+     *
+     * @param organization the organization name.
+     * @param unit         the unit name.
+     * @return the aggregate or null if must be derived again from the organization.
+     */
+    public FrustrationOnTeamworkingAggregate getUnitAggregate(String organization, String unit) {
+        return get(unitAggregates, getUnitKey(organization, unit));
+    }
+
+    public void setUnitAggregate(String organization, String unit, FrustrationOnTeamworkingAggregate aggregate) {
+        unitAggregates.put(getUnitKey(organization, unit), aggregate);
+    }
+
+    /**
+     * Sets the unit of the latest submission of a user.
+     *
+     * @param organization the organization name.
+     * @param user         the user.
+     * @param unit         the unit name.
+     * @return the previous unit of the user, or null.
+     */
+    public String setUnit(String organization, String user, String unit) {
+        return units.computeIfAbsent(getKey(organization), k -> new ConcurrentHashMap<>()).put(user, unit);
+    }
+
+    public String getUnit(String organization, String user) {
+        final Map<String, String> organizationUnits = units.get(getKey(organization));
+        return organizationUnits != null ? organizationUnits.get(user) : null;
+    }
+
+    /**
+     * Units of all users.
+     *
+     * @return a read only view of user --> unit by organization.
+     */
+    public Map<String, Map<String, String>> getUnits() {
+        return Collections.unmodifiableMap(units);
+    }
+
+    /**
+     * Current aggregates of all organizations, including the ones pending of reconciliation.
+     *
+     * @return a read only view by organization.
+     */
+    public Map<String, FrustrationOnTeamworkingAggregate> getOrganizationAggregates() {
+        return Collections.unmodifiableMap(organizationAggregates);
+    }
+
+    /**
+     * Current aggregates of all teams, including the ones pending of reconciliation.
+     *
+     * @return a read only view by team.
+     */
+    public Map<String, FrustrationOnTeamworkingAggregate> getTeamAggregates() {
+        return Collections.unmodifiableMap(teamAggregates);
+    }
+
+    /**
+     * Forces all teams to be rebuilt from the Fact Manager, i.e. when the members of the teams have changed.
+     */
+    public void clearTeamAggregates() {
+        teamAggregates.clear();
+    }
+
+    /**
+     * Removes the organization aggregate and its unit aggregates, i.e. when the organization is processed by other instance. Team
+     * aggregates must be cleared separately. The units of the users are kept, as they are only known from the received events, and are
+     * needed to derive the unit aggregates again if the organization comes back.
+     *
+     * @param organization the organization name.
+     */
+    public void removeOrganization(String organization) {
+        organizationAggregates.remove(getKey(organization));
+        final String unitPrefix = getUnitKey(organization, "");
+        unitAggregates.keySet().removeIf(key -> key.startsWith(unitPrefix));
+    }
+
+    /**
+     * Removes all aggregates, that will be rebuilt from the Fact Manager. The units of the users are kept.
+     */
+    public void clear() {
+        organizationAggregates.clear();
+        teamAggregates.clear();
+        unitAggregates.clear();
+    }
+
+    private FrustrationOnTeamworkingAggregate get(Map<String, FrustrationOnTeamworkingAggregate> aggregates, String key) {
+        final FrustrationOnTeamworkingAggregate aggregate = aggregates.get(getKey(key));
+        if (aggregate == null) {
+            return null;
+        }
+        //Reconciliation with the Fact Manager. Kept until replaced, as it is still used if the Fact Manager is unavailable.
+        if (reconciliationMinutes > 0 && aggregate.getCreatedAt().plusMinutes(reconciliationMinutes).isBefore(LocalDateTime.now())) {
+            return null;
+        }
+        return aggregate;
+    }
+
+    private String getKey(String key) {
+        //Concurrent maps do not allow null keys.
+        return Objects.toString(key, "");
+    }
+
+    private String getUnitKey(String organization, String unit) {
+        return getKey(organization) + UNIT_SEPARATOR + unit;
+    }
+
+    @Override
+    public synchronized void destroy() {
+        destroyed = true;
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+        if (fanOutExecutor != null) {
+            fanOutExecutor.shutdownNow();
+        }
+    }
+}
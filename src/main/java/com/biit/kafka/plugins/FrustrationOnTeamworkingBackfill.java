@@ -0,0 +1,363 @@
+package com.biit.kafka.plugins;
+
+/*-
+ * #%L
+ * Frustration on Teamworking Organization Statistics Generator
+ * %%
+ * Copyright (C) 2024 - 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.drools.form.DroolsForm;
+import com.biit.drools.form.DroolsSubmittedForm;
+import com.biit.drools.form.provider.DroolsFormProvider;
+import com.biit.kafka.config.ObjectMapperFactory;
+import com.biit.kafka.events.Event;
+import com.biit.kafka.events.EventSerializer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Recomputes the organization and team results from file exports, i.e. after changing the scoring rules, without consuming the events
+ * again nor calling the Fact Manager or the User Manager. The organizations are aggregated in parallel with the same code used by
+ * {@link FrustrationOnTeamworkingEventController}, and the team aggregates are derived from them. Results are written as json lines, or sent
+ * to the results topic at a limited rate. Only a few organizations are kept in memory at the same time.
+ */
+public final class FrustrationOnTeamworkingBackfill {
+    private static final String FACTS_ARGUMENT = "--facts";
+    private static final String MEMBERS_ARGUMENT = "--members";
+    private static final String OUTPUT_ARGUMENT = "--output";
+    private static final String BOOTSTRAP_SERVERS_ARGUMENT = "--bootstrap-servers";
+    private static final String TOPIC_ARGUMENT = "--topic";
+    private static final String RATE_ARGUMENT = "--rate";
+    private static final String THREADS_ARGUMENT = "--threads";
+    private static final String SPREAD_ARGUMENT = "--spread";
+    private static final String APPLICATION_ARGUMENT = "--application";
+    private static final String GROUP_ARGUMENT = "--group";
+    private static final Set<String> ARGUMENTS = Set.of(FACTS_ARGUMENT, MEMBERS_ARGUMENT, OUTPUT_ARGUMENT, BOOTSTRAP_SERVERS_ARGUMENT,
+            TOPIC_ARGUMENT, RATE_ARGUMENT, THREADS_ARGUMENT, SPREAD_ARGUMENT, APPLICATION_ARGUMENT, GROUP_ARGUMENT);
+    private static final String USAGE = "Usage: " + FrustrationOnTeamworkingBackfill.class.getName()
+            + " --facts <file> [--members <file>] (--output <file> | --bootstrap-servers <servers> --topic <topic>)"
+            + " [--application <application>] [--group <events topic>]"
+            + " [--rate <results by second>] [--threads <threads>] [--spread <true|false>]";
+    private static final int PARALLEL_THRESHOLD = 1000;
+    //Organizations aggregated but not written yet, by thread.
+    private static final int PENDING_BY_THREAD = 2;
+    private static final long NANOS_BY_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final FrustrationOnTeamworkingAggregator frustrationOnTeamworkingAggregator;
+    private final FrustrationOnTeamworkingFactExport factExport;
+    private final FrustrationOnTeamworkingEventConverter frustrationOnTeamworkingEventConverter = new FrustrationOnTeamworkingEventConverter();
+    private final int parallelism;
+    private final boolean publishSpread;
+    private final int rate;
+
+    /**
+     * Receives each result.
+     */
+    @FunctionalInterface
+    public interface ResultConsumer {
+        void accept(String key, Event event) throws IOException;
+    }
+
+    /**
+     * @param threads       the organizations aggregated at the same time. All processors if 0.
+     * @param publishSpread if the results include the spread of each variable, as 'spring.kafka.frustration.statistics.spread'.
+     * @param rate          maximum results written by second. Unlimited if 0.
+     * @param application   the application of the facts, as used by {@link FrustrationOnTeamworkingEventController}. Any if null.
+     * @param group         the group of the facts, as 'spring.kafka.frustration.topic'. Any if null.
+     */
+    public FrustrationOnTeamworkingBackfill(int threads, boolean publishSpread, int rate, String application, String group) {
+        this.parallelism = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        //Organizations are already aggregated in parallel, so each one uses a single thread.
+        this.frustrationOnTeamworkingAggregator = new FrustrationOnTeamworkingAggregator(0, PARALLEL_THRESHOLD, 1, 0);
+        this.factExport = new FrustrationOnTeamworkingFactExport(FrustrationOnTeamworkingEventController.FORM_LABEL,
+                FrustrationOnTeamworkingEventController.DROOLS_RESULT_EVENT_TYPE, application, group, parallelism);
+        this.publishSpread = publishSpread;
+        this.rate = rate;
+    }
+
+    public static void main(String[] args) {
+        try {
+            run(args);
+        } catch (IllegalArgumentException e) {
+            FrustrationOnTeamworkingEventsLogger.severe(FrustrationOnTeamworkingBackfill.class, e.getMessage());
+            System.exit(1);
+        } catch (Exception e) {
+            FrustrationOnTeamworkingEventsLogger.errorMessage(FrustrationOnTeamworkingBackfill.class, e);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs the backfill from the command line arguments.
+     *
+     * @param args the arguments, as described on the usage.
+     * @return the number of results.
+     * @throws IllegalArgumentException if the arguments are not valid.
+     * @throws IOException              if any file cannot be read or written, or any result cannot be sent.
+     */
+    public static int run(String[] args) throws IOException {
+        final Map<String, String> arguments = getArguments(args);
+        if (arguments == null || !arguments.containsKey(FACTS_ARGUMENT)
+                || arguments.containsKey(OUTPUT_ARGUMENT) == arguments.containsKey(TOPIC_ARGUMENT)
+                || (arguments.containsKey(TOPIC_ARGUMENT) && !arguments.containsKey(BOOTSTRAP_SERVERS_ARGUMENT))) {
+            throw new IllegalArgumentException(USAGE);
+        }
+        final FrustrationOnTeamworkingBackfill backfill = new FrustrationOnTeamworkingBackfill(
+                Integer.parseInt(arguments.getOrDefault(THREADS_ARGUMENT, "0")),
+                Boolean.parseBoolean(arguments.getOrDefault(SPREAD_ARGUMENT, "false")),
+                Integer.parseInt(arguments.getOrDefault(RATE_ARGUMENT, "0")),
+                arguments.getOrDefault(APPLICATION_ARGUMENT, FrustrationOnTeamworkingEventController.DROOLS_APPLICATION),
+                arguments.get(GROUP_ARGUMENT));
+        final Path factsFile = Path.of(arguments.get(FACTS_ARGUMENT));
+        final Path membersFile = arguments.containsKey(MEMBERS_ARGUMENT) ? Path.of(arguments.get(MEMBERS_ARGUMENT)) : null;
+        try {
+            final long start = System.nanoTime();
+            final int results = arguments.containsKey(OUTPUT_ARGUMENT)
+                    ? backfill.write(factsFile, membersFile, Path.of(arguments.get(OUTPUT_ARGUMENT)))
+                    : backfill.send(factsFile, membersFile, arguments.get(BOOTSTRAP_SERVERS_ARGUMENT), arguments.get(TOPIC_ARGUMENT));
+            FrustrationOnTeamworkingEventsLogger.info(FrustrationOnTeamworkingBackfill.class, "Backfill of '{}' results finished in '{}' seconds.",
+                    results, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start));
+            return results;
+        } finally {
+            backfill.shutdown();
+        }
+    }
+
+    private static Map<String, String> getArguments(String[] args) {
+        if (args.length % 2 != 0) {
+            return null;
+        }
+        final Map<String, String> arguments = new HashMap<>();
+        for (int i = 0; i < args.length; i += 2) {
+            if (!ARGUMENTS.contains(args[i])) {
+                return null;
+            }
+            arguments.put(args[i], args[i + 1]);
+        }
+        return arguments;
+    }
+
+    /**
+     * Writes the results on a file, as json lines.
+     *
+     * @param factsFile   the facts export.
+     * @param membersFile the members export, or null to skip the teams.
+     * @param outputFile  the file to write.
+     * @return the number of results.
+     * @throws IOException if any file cannot be read or written.
+     */
+    public int write(Path factsFile, Path membersFile, Path outputFile) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(outputFile, StandardCharsets.UTF_8)) {
+            return run(factsFile, membersFile, (key, event) -> {
+                writer.write(ObjectMapperFactory.getObjectMapper().writeValueAsString(event));
+                writer.newLine();
+            });
+        }
+    }
+
+    /**
+     * Sends the results to a topic, with the same keys used by {@link FrustrationOnTeamworkingEventSender}.
+     *
+     * @param factsFile        the facts export.
+     * @param membersFile      the members export, or null to skip the teams.
+     * @param bootstrapServers the Kafka servers.
+     * @param topic            the results topic.
+     * @return the number of results.
+     * @throws IOException if any file cannot be read or any result cannot be sent.
+     */
+    public int send(Path factsFile, Path membersFile, String bootstrapServers, String topic) throws IOException {
+        final Map<String, Object> properties = new HashMap<>();
+        properties.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        properties.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        properties.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, EventSerializer.class);
+        final AtomicInteger failed = new AtomicInteger();
+        final int results;
+        try (KafkaProducer<String, Event> producer = new KafkaProducer<>(properties)) {
+            results = run(factsFile, membersFile, (key, event) -> producer.send(new ProducerRecord<>(topic, key, event), (metadata, e) -> {
+                if (e != null) {
+                    failed.incrementAndGet();
+                    FrustrationOnTeamworkingEventsLogger.errorMessage(this.getClass(), e);
+                }
+            }));
+            producer.flush();
+        }
+        if (failed.get() > 0) {
+            throw new IOException("'" + failed.get() + "' results not sent.");
+        }
+        return results;
+    }
+
+    /**
+     * Aggregates all organizations and their teams.
+     *
+     * @param factsFile   the facts export.
+     * @param membersFile the members export, or null to skip the teams.
+     * @param consumer    receives each result from the calling thread, at the configured rate.
+     * @return the number of results.
+     * @throws IOException if any file cannot be read or a fact cannot be parsed.
+     */
+    public int run(Path factsFile, Path membersFile, ResultConsumer consumer) throws IOException {
+        final long start = System.nanoTime();
+        final Map<String, List<FrustrationOnTeamworkingFactExport.Submission>> submissions = factExport.readSubmissions(factsFile);
+        final Map<String, List<FrustrationOnTeamworkingFactExport.Team>> teams = new HashMap<>();
+        if (membersFile != null) {
+            for (FrustrationOnTeamworkingFactExport.Team team : factExport.readTeams(membersFile)) {
+                teams.computeIfAbsent(team.getOrganization(), k -> new ArrayList<>()).add(team);
+            }
+        }
+        FrustrationOnTeamworkingEventsLogger.info(this.getClass(), "Read '{}' organizations and the teams of '{}' in '{}' ms.",
+                submissions.size(), teams.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        final ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            final Thread thread = new Thread(runnable, "frustration-backfill");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final CompletionService<List<Map.Entry<String, Event>>> completionService = new ExecutorCompletionService<>(executor);
+        final Iterator<String> organizations = submissions.keySet().iterator();
+        int pending = 0;
+        int results = 0;
+        long sendStart = 0;
+        try {
+            while (pending < parallelism * PENDING_BY_THREAD && organizations.hasNext()) {
+                submit(completionService, organizations.next(), submissions, teams);
+                pending++;
+            }
+            while (pending > 0) {
+                final List<Map.Entry<String, Event>> organizationResults = completionService.take().get();
+                pending--;
+                if (organizations.hasNext()) {
+                    submit(completionService, organizations.next(), submissions, teams);
+                    pending++;
+                }
+                for (Map.Entry<String, Event> result : organizationResults) {
+                    if (results == 0) {
+                        sendStart = System.nanoTime();
+                    }
+                    throttle(sendStart, results);
+                    consumer.accept(result.getKey(), result.getValue());
+                    results++;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return results;
+    }
+
+    private void submit(CompletionService<List<Map.Entry<String, Event>>> completionService, String organization,
+                        Map<String, List<FrustrationOnTeamworkingFactExport.Submission>> submissions,
+                        Map<String, List<FrustrationOnTeamworkingFactExport.Team>> teams) {
+        completionService.submit(() -> getResults(organization, submissions.get(organization), teams.getOrDefault(organization, List.of())));
+    }
+
+    private void throttle(long start, int sent) throws InterruptedException {
+        if (rate <= 0) {
+            return;
+        }
+        final long wait = start + sent * NANOS_BY_SECOND / rate - System.nanoTime();
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    private List<Map.Entry<String, Event>> getResults(String organization, List<FrustrationOnTeamworkingFactExport.Submission> submissions,
+                                                      Collection<FrustrationOnTeamworkingFactExport.Team> teams) throws IOException {
+        final FrustrationOnTeamworkingAggregate aggregate = frustrationOnTeamworkingAggregator.aggregate(submissions,
+                FrustrationOnTeamworkingFactExport.Submission::getUser, FrustrationOnTeamworkingFactExport.Submission::getValue);
+        final FrustrationOnTeamworkingFactExport.Submission latest = submissions.stream()
+                .reduce(FrustrationOnTeamworkingFactExport::getLatest).orElseThrow();
+        //The structure of the latest submission is reused by all results, as done with each received event.
+        final DroolsForm droolsForm = DroolsFormProvider.createStructure(ObjectMapperFactory.getObjectMapper()
+                .readValue(latest.getValue(), DroolsSubmittedForm.class));
+        final List<Map.Entry<String, Event>> results = new ArrayList<>();
+        results.add(Map.entry(FrustrationOnTeamworkingEventController.ORGANIZATION_BATCH_KEY + organization,
+                getEvent(droolsForm, FrustrationOnTeamworkingEventConverter.FORM_ORGANIZATION_OUTPUT, aggregate, latest, organization, null)));
+        if (teams.isEmpty()) {
+            return results;
+        }
+        final Map<String, FrustrationOnTeamworkingFactExport.Submission> submissionsByUser = new HashMap<>();
+        submissions.forEach(submission -> submissionsByUser.put(submission.getUser(), submission));
+        for (FrustrationOnTeamworkingFactExport.Team team : teams) {
+            //Members have the same latest submission on the organization.
+            final FrustrationOnTeamworkingAggregate teamAggregate = aggregate.subset(team.getMembers()::contains);
+            if (teamAggregate.getContributors() == 0) {
+                continue;
+            }
+            final FrustrationOnTeamworkingFactExport.Submission teamLatest = team.getMembers().stream().map(submissionsByUser::get)
+                    .filter(Objects::nonNull).reduce(FrustrationOnTeamworkingFactExport::getLatest).orElse(latest);
+            results.add(Map.entry(FrustrationOnTeamworkingEventController.TEAM_BATCH_KEY + team.getId(),
+                    getEvent(droolsForm, FrustrationOnTeamworkingEventConverter.FORM_TEAM_OUTPUT, teamAggregate, teamLatest, organization,
+                            team.getName())));
+        }
+        return results;
+    }
+
+    private Event getEvent(DroolsForm droolsForm, String outputLabel, FrustrationOnTeamworkingAggregate aggregate,
+                           FrustrationOnTeamworkingFactExport.Submission latest, String organization, String unit) {
+        droolsForm.setTag(outputLabel);
+        droolsForm.setLabel(outputLabel);
+        droolsForm.setSubmittedBy(latest.getUser());
+        droolsForm.setSubmittedAt(latest.getCreatedAt());
+        final DroolsSubmittedForm submittedForm = (DroolsSubmittedForm) droolsForm.getDroolsSubmittedForm();
+        submittedForm.setFormVariables(publishSpread ? aggregate.getStatistics(FrustrationOnTeamworkingEventController.FORM_LABEL, outputLabel)
+                : aggregate.getAverages(FrustrationOnTeamworkingEventController.FORM_LABEL, outputLabel));
+        submittedForm.setTag(outputLabel);
+        submittedForm.setOrganization(organization);
+        //Converted before the structure is reused for the next result.
+        final Event event = frustrationOnTeamworkingEventConverter.getEvent(droolsForm, latest.getUser(), null);
+        event.setOrganization(organization);
+        event.setUnit(unit);
+        return event;
+    }
+
+    public void shutdown() {
+        frustrationOnTeamworkingAggregator.destroy();
+    }
+}
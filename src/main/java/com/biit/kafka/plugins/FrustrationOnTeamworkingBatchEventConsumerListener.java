@@ -0,0 +1,101 @@
+package com.biit.kafka.plugins;
+
+/*-
+ * #%L
+ * Frustration on Teamworking Organization Statistics Generator
+ * %%
+ * Copyright (C) 2024 - 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.kafka.events.Event;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.annotation.EnableKafka;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Receives all records of a poll at once. Only started if 'spring.kafka.frustration.listener.batch' is enabled, and then the single record
+ * listener {@link FrustrationOnTeamworkingEventConsumerListener} is not started.
+ */
+@EnableKafka
+@Configuration
+@ConditionalOnExpression("${spring.kafka.enabled:false}")
+public class FrustrationOnTeamworkingBatchEventConsumerListener implements ConsumerSeekAware {
+
+    /**
+     * Receives the records of a poll, that are acknowledged once processed.
+     */
+    @FunctionalInterface
+    public interface BatchEventListener {
+        CompletableFuture<?> onEvents(List<ConsumerRecord<String, Event>> records);
+    }
+
+    private final List<BatchEventListener> listeners = new ArrayList<>();
+    private final FrustrationOnTeamworkingAcknowledgments acknowledgments = new FrustrationOnTeamworkingAcknowledgments();
+
+    private FrustrationOnTeamworkingRebalanceHandler rebalanceHandler;
+
+    public void addListener(BatchEventListener listener) {
+        listeners.add(listener);
+    }
+
+    @Autowired(required = false)
+    public void setRebalanceHandler(FrustrationOnTeamworkingRebalanceHandler rebalanceHandler) {
+        this.rebalanceHandler = rebalanceHandler;
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        if (rebalanceHandler != null) {
+            rebalanceHandler.assigned(assignments, callback);
+        }
+    }
+
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        if (rebalanceHandler != null) {
+            rebalanceHandler.revoked(partitions);
+        }
+    }
+
+    @KafkaListener(topicPattern = "#{T(com.biit.kafka.plugins.FrustrationOnTeamworkingEventConsumerListener).getTopicPattern("
+            + "'${spring.kafka.frustration.topic:}', '${spring.kafka.frustration.membership.topic:}', "
+            + "'${spring.kafka.frustration.repartition.topic:}')}",
+            clientIdPrefix = "#{'${spring.kafka.client.id}'?:T(java.util.UUID).randomUUID().toString()}",
+            groupId = "#{T(com.biit.kafka.plugins.FrustrationOnTeamworkingEventConsumerListener).getGroupId("
+                    + "'${spring.kafka.frustration.group.id:}', '${spring.kafka.group.id:}')}",
+            containerFactory = "templateEventListenerContainerFactory", batch = "true",
+            containerPostProcessor = FrustrationOnTeamworkingAcknowledgments.CONTAINER_POST_PROCESSOR,
+            autoStartup = "#{${spring.kafka.enabled:true} && ${spring.kafka.frustration.listener.batch:false}}")
+    public void eventsListener(List<ConsumerRecord<String, Event>> records, Acknowledgment acknowledgment) {
+        FrustrationOnTeamworkingEventsLogger.debug(this.getClass(), "Received '{}' records.", records.size());
+        final List<CompletableFuture<?>> processedEvents = new ArrayList<>();
+        listeners.forEach(listener -> processedEvents.add(listener.onEvents(records)));
+        acknowledgments.acknowledge(CompletableFuture.allOf(processedEvents.toArray(new CompletableFuture<?>[0])), acknowledgment);
+    }
+}
@@ -0,0 +1,144 @@
+package com.biit.kafka.plugins;
+
+/*-
+ * #%L
+ * Frustration on Teamworking Organization Statistics Generator
+ * %%
+ * Copyright (C) 2024 - 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Bounded cache with time to live. When full, the least recently used entry is evicted. Concurrent requests for a key that is not cached
+ * are collapsed: only the first one calls the loader, and the rest wait for its result. If the loader fails, the expired value is returned
+ * if still present, so the cache keeps working while the source is unavailable.
+ *
+ * @param <K> the key.
+ * @param <V> the cached value.
+ */
+public class FrustrationOnTeamworkingCache<K, V> {
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final long timeToLiveMillis;
+    private final Map<K, CachedValue<V>> values;
+    private final Map<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+    private long generation = 0;
+
+    public FrustrationOnTeamworkingCache(int maxSize, long timeToLiveMillis) {
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.values = new LinkedHashMap<>(Math.max(maxSize, 1), LOAD_FACTOR, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, CachedValue<V>> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Gets a value from the cache, or loads it if not present or expired. Null values are not cached.
+     *
+     * @param key    the key.
+     * @param loader retrieves the value if not cached.
+     * @return the value.
+     */
+    public V get(K key, Function<K, V> loader) {
+        final long loadingGeneration;
+        final CachedValue<V> expiredValue;
+        synchronized (this) {
+            final CachedValue<V> cachedValue = values.get(key);
+            if (cachedValue != null && cachedValue.expiration >= System.currentTimeMillis()) {
+                return cachedValue.value;
+            }
+            //Expired values are kept until reloaded.
+            expiredValue = cachedValue;
+            loadingGeneration = generation;
+        }
+
+        final CompletableFuture<V> request = new CompletableFuture<>();
+        final CompletableFuture<V> pendingRequest = loading.putIfAbsent(key, request);
+        if (pendingRequest != null) {
+            //Other thread is already retrieving it.
+            try {
+                return pendingRequest.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+        try {
+            final V value = loader.apply(key);
+            synchronized (this) {
+                //Do not store values loaded before an invalidation.
+                if (value != null && loadingGeneration == generation) {
+                    values.put(key, new CachedValue<>(value, System.currentTimeMillis() + timeToLiveMillis));
+                } else if (value == null) {
+                    values.remove(key);
+                }
+            }
+            request.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            final V fallbackValue = getExpiredValue(expiredValue, loadingGeneration);
+            if (fallbackValue != null) {
+                FrustrationOnTeamworkingEventsLogger.debug(this.getClass(), "Using expired value of '{}': {}", key, e.getMessage());
+                request.complete(fallbackValue);
+                return fallbackValue;
+            }
+            request.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, request);
+        }
+    }
+
+    private synchronized V getExpiredValue(CachedValue<V> expiredValue, long loadingGeneration) {
+        //Not if invalidated meanwhile.
+        return expiredValue != null && loadingGeneration == generation ? expiredValue.value : null;
+    }
+
+    public synchronized void invalidate(K key) {
+        generation++;
+        values.remove(key);
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        values.clear();
+    }
+
+    public synchronized int size() {
+        return values.size();
+    }
+
+    private static final class CachedValue<V> {
+        private final V value;
+        private final long expiration;
+
+        private CachedValue(V value, long expiration) {
+            this.value = value;
+            this.expiration = expiration;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.biit.kafka.plugins;
+
+/*-
+ * #%L
+ * Frustration on Teamworking Organization Statistics Generator
+ * %%
+ * Copyright (C) 2024 - 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.kafka.events.Event;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Detects events that have already been received, as Kafka redeliveries and producer retries may send the same submission several times.
+ * Events are identified by its message id, or by its session and creation time if they have no message id. Only the ids received on the
+ * time window are kept, up to a maximum size. Also detects submissions older than the latest one received from the same user, that would
+ * replace the newer one on the aggregates if processed out of order. Events are only registered once processed, so an event that fails is
+ * processed again when redelivered.
+ */
+@Component
+@ConditionalOnExpression("${spring.kafka.enabled:false}")
+public class FrustrationOnTeamworkingDeduplicator {
+    private static final float LOAD_FACTOR = 0.75f;
+    private static final long MILLIS_BY_MINUTE = 60_000L;
+
+    private final long windowMillis;
+    private final boolean dropStale;
+    //Id --> when was received. Ordered by reception.
+    private final Map<Object, Long> receivedIds;
+    //Organization and user --> creation time of the latest submission.
+    private final Map<String, LocalDateTime> latestSubmissions;
+
+    public FrustrationOnTeamworkingDeduplicator(@Value("${spring.kafka.frustration.dedup.size:100000}") int maxSize,
+                                                @Value("${spring.kafka.frustration.dedup.window.minutes:60}") long windowMinutes,
+                                                @Value("${spring.kafka.frustration.dedup.stale:true}") boolean dropStale) {
+        this.windowMillis = windowMinutes * MILLIS_BY_MINUTE;
+        this.dropStale = dropStale;
+        this.receivedIds = new LinkedHashMap<>(Math.max(maxSize, 1), LOAD_FACTOR) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Long> eldest) {
+                return size() > maxSize;
+            }
+        };
+        this.latestSubmissions = new LinkedHashMap<>(Math.max(maxSize, 1), LOAD_FACTOR, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, LocalDateTime> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Checks if an event has already been processed.
+     *
+     * @param event the event.
+     * @return true if the event has already been processed on the time window.
+     */
+    public synchronized boolean isDuplicate(Event event) {
+        if (windowMillis <= 0) {
+            return false;
+        }
+        final Object id = getId(event);
+        if (id == null) {
+            return false;
+        }
+        removeExpired(System.currentTimeMillis());
+        return receivedIds.containsKey(id);
+    }
+
+    private Object getId(Event event) {
+        if (event.getMessageId() != null) {
+            return event.getMessageId();
+        }
+        if (event.getSessionId() != null && event.getCreatedAt() != null) {
+            return event.getSessionId() + "@" + event.getCreatedAt();
+        }
+        return null;
+    }
+
+    private void removeExpired(long now) {
+        final Iterator<Long> receptions = receivedIds.values().iterator();
+        while (receptions.hasNext() && receptions.next() < now - windowMillis) {
+            receptions.remove();
+        }
+    }
+
+    /**
+     * Checks if a submission is older than the latest one processed from the same user.
+     *
+     * @param event        the event.
+     * @param organization the organization of the event.
+     * @return true if a newer submission of the same user has already been processed.
+     */
+    public synchronized boolean isStale(Event event, String organization) {
+        if (!dropStale || event.getCreatedBy() == null || event.getCreatedAt() == null) {
+            return false;
+        }
+        final LocalDateTime latestSubmission = latestSubmissions.get(getUserKey(event, organization));
+        return latestSubmission != null && event.getCreatedAt().isBefore(latestSubmission);
+    }
+
+    /**
+     * Registers an event as processed, with the creation time of its submission.
+     *
+     * @param event        the event.
+     * @param organization the organization of the event.
+     */
+    public synchronized void processed(Event event, String organization) {
+        final Object id = getId(event);
+        if (windowMillis > 0 && id != null) {
+            final long now = System.currentTimeMillis();
+            removeExpired(now);
+            //Moved to the end, as received now.
+            receivedIds.remove(id);
+            receivedIds.put(id, now);
+        }
+        if (event.getCreatedBy() != null && event.getCreatedAt() != null) {
+            latestSubmissions.merge(getUserKey(event, organization), event.getCreatedAt(),
+                    (latest, createdAt) -> createdAt.isAfter(latest) ? createdAt : latest);
+        }
+    }
+
+    private String getUserKey(Event event, String organization) {
+        return Objects.toString(organization, "") + "/" + event.getCreatedBy();
+    }
+}
@@ -0,0 +1,121 @@
+package com.biit.kafka.plugins;
+
+/*-
+ * #%L
+ * Frustration on Teamworking Organization Statistics Generator
+ * %%
+ * Copyright (C) 2024 - 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers the last result sent for each key, to send only the variables that have changed.
+ */
+public class FrustrationOnTeamworkingDeltaTracker {
+    private final int snapshotInterval;
+    private final Map<String, State> states = new ConcurrentHashMap<>();
+
+    /**
+     * @param snapshotInterval number of deltas sent between two snapshots.
+     */
+    public FrustrationOnTeamworkingDeltaTracker(int snapshotInterval) {
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    /**
+     * Gets the changes of a new result. The first result of a key, and each {@code snapshotInterval} results, is a snapshot.
+     *
+     * @param key           the organization or team.
+     * @param formVariables all variables of the new result. The map must not be modified later.
+     * @return the delta, or null if nothing has changed.
+     */
+    public FrustrationOnTeamworkingResultDelta next(String key, Map<String, Map<String, Object>> formVariables) {
+        final FrustrationOnTeamworkingResultDelta[] delta = new FrustrationOnTeamworkingResultDelta[1];
+        states.compute(key, (k, state) -> {
+            final State current = state != null ? state : new State(snapshotInterval);
+            if (current.deltas >= snapshotInterval) {
+                delta[0] = new FrustrationOnTeamworkingResultDelta(key, current.sequence++, true, formVariables);
+                current.deltas = 0;
+            } else {
+                final Map<String, Map<String, Object>> changes = getChanges(current.formVariables, formVariables);
+                if (changes.isEmpty()) {
+                    return current;
+                }
+                delta[0] = new FrustrationOnTeamworkingResultDelta(key, current.sequence++, false, changes);
+                current.deltas++;
+            }
+            current.formVariables = formVariables;
+            return current;
+        });
+        return delta[0];
+    }
+
+    /**
+     * Forces a snapshot on the next result of a key, i.e. if a delta has not been delivered.
+     *
+     * @param key the organization or team.
+     */
+    public void invalidate(String key) {
+        states.computeIfPresent(key, (k, state) -> {
+            state.deltas = snapshotInterval;
+            return state;
+        });
+    }
+
+    /**
+     * Forces a snapshot on the next result of all keys, i.e. after a rebalance, as other instance may have sent results of the same keys.
+     */
+    public void invalidateAll() {
+        states.keySet().forEach(this::invalidate);
+    }
+
+    private static Map<String, Map<String, Object>> getChanges(Map<String, Map<String, Object>> previous, Map<String, Map<String, Object>> current) {
+        final Map<String, Map<String, Object>> changes = new HashMap<>();
+        current.forEach((element, variables) -> {
+            final Map<String, Object> previousVariables = previous.getOrDefault(element, Map.of());
+            variables.forEach((variable, value) -> {
+                if (!Objects.equals(previousVariables.get(variable), value)) {
+                    changes.computeIfAbsent(element, e -> new HashMap<>()).put(variable, value);
+                }
+            });
+        });
+        previous.forEach((element, variables) -> {
+            final Map<String, Object> currentVariables = current.getOrDefault(element, Map.of());
+            variables.keySet().forEach(variable -> {
+                if (!currentVariables.containsKey(variable)) {
+                    changes.computeIfAbsent(element, e -> new HashMap<>()).put(variable, null);
+                }
+            });
+        });
+        return changes;
+    }
+
+    private static final class State {
+        private long sequence = 0;
+        private int deltas;
+        private Map<String, Map<String, Object>> formVariables = Map.of();
+
+        private State(int deltas) {
+            //First result is always a snapshot.
+            this.deltas = deltas;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.biit.kafka.plugins;
+
+/*-
+ * #%L
+ * Frustration on Teamworking Organization Statistics Generator
+ * %%
+ * Copyright (C) 2024 - 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces bursts of submissions for the same organization or team. The first submission opens a window, and only the action of the last
+ * submission received is executed when the window is closed, or earlier if the maximum batch size is reached. Therefore, if a whole
+ * organization fills in the questionnaire at the same time, only one result is computed and sent by window. All actions are executed
+ * sequentially on the same thread. If the window is zero, actions are executed immediately by the caller.
+ */
+@Component
+@ConditionalOnExpression("${spring.kafka.enabled:false}")
+public class FrustrationOnTeamworkingEventBatcher implements DisposableBean {
+
+    private final long windowMillis;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, PendingAction> pendingActions = new HashMap<>();
+
+    public FrustrationOnTeamworkingEventBatcher(@Value("${spring.kafka.frustration.batch.window.millis:0}") long windowMillis,
+                                                @Value("${spring.kafka.frustration.batch.max.size:100}") int maxBatchSize) {
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = maxBatchSize;
+        this.scheduler = windowMillis > 0 ? Executors.newSingleThreadScheduledExecutor() : null;
+    }
+
+    /**
+     * Registers the action for a key. Any pending action for the same key is replaced.
+     *
+     * @param key    the organization or team.
+     * @param action the action to execute when the window is closed, that returns when its result is sent.
+     * @return completed when the action executed for the window, that can be a later one, has sent its result.
+     */
+    public CompletableFuture<Void> submit(String key, Supplier<CompletableFuture<Void>> action) {
+        if (scheduler == null) {
+            return run(action);
+        }
+        synchronized (pendingActions) {
+            final PendingAction pendingAction = pendingActions.computeIfAbsent(key, k -> new PendingAction());
+            if (pendingAction.window == null) {
+                pendingAction.window = scheduler.schedule(() -> flush(key, pendingAction), windowMillis, TimeUnit.MILLISECONDS);
+            }
+            pendingAction.action = action;
+            pendingAction.size++;
+            if (pendingAction.size >= maxBatchSize) {
+                //Closes the window now, so its timer cannot flush the next window of the key.
+                pendingAction.window.cancel(false);
+                scheduler.execute(() -> flush(key, pendingAction));
+            }
+            return pendingAction.sent;
+        }
+    }
+
+    private void flush(String key, PendingAction pendingAction) {
+        synchronized (pendingActions) {
+            //Already flushed by the batch size.
+            if (!pendingActions.remove(key, pendingAction)) {
+                return;
+            }
+        }
+        FrustrationOnTeamworkingEventsLogger.debug(this.getClass(), "Flushing '{}' events for '{}'.", pendingAction.size, key);
+        run(pendingAction.action).whenComplete((result, e) -> pendingAction.sent.complete(null));
+    }
+
+    private CompletableFuture<Void> run(Supplier<CompletableFuture<Void>> action) {
+        try {
+            return action.get();
+        } catch (Exception e) {
+            FrustrationOnTeamworkingEventsLogger.errorMessage(this.getClass(), e);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        if (scheduler != null) {
+            //Send pending results before closing.
+            final Map<String, PendingAction> actions;
+            synchronized (pendingActions) {
+                actions = new HashMap<>(pendingActions);
+            }
+            actions.forEach((key, pendingAction) -> scheduler.execute(() -> flush(key, pendingAction)));
+            scheduler.shutdown();
+            scheduler.awaitTermination(windowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static final class PendingAction {
+        private final CompletableFuture<Void> sent = new CompletableFuture<>();
+        private Supplier<CompletableFuture<Void>> action;
+        private int size = 0;
+        private ScheduledFuture<?> window;
+    }
+}
@@ -23,18 +23,50 @@ package com.biit.kafka.plugins;
 
 import com.biit.kafka.consumers.EventListener;
 import com.biit.kafka.events.Event;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.config.ContainerPostProcessor;
+import org.springframework.kafka.listener.AbstractMessageListenerContainer;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.Payload;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
 @EnableKafka
 @Configuration
 @ConditionalOnExpression("${spring.kafka.enabled:false}")
-public class FrustrationOnTeamworkingEventConsumerListener extends EventListener {
+public class FrustrationOnTeamworkingEventConsumerListener extends EventListener implements ConsumerSeekAware {
+    //Matches no topic name.
+    private static final String NO_TOPICS_PATTERN = "(?!)";
+
+    /**
+     * Receives an event, that is acknowledged once processed.
+     */
+    @FunctionalInterface
+    public interface AcknowledgedEventListener {
+        CompletableFuture<?> onEvent(Event event, Integer offset, String groupId, String key, int partition, String topic, long timeStamp);
+    }
+
+    private final List<AcknowledgedEventListener> acknowledgedListeners = new ArrayList<>();
+    private final FrustrationOnTeamworkingAcknowledgments acknowledgments = new FrustrationOnTeamworkingAcknowledgments();
+
+    private FrustrationOnTeamworkingRebalanceHandler rebalanceHandler;
 
     public FrustrationOnTeamworkingEventConsumerListener() {
         // Event is sent0 from this own application.
@@ -42,18 +74,91 @@ public class FrustrationOnTeamworkingEventConsumerListener extends EventListener
         FrustrationOnTeamworkingEventsLogger.info(this.getClass(), "Frustration On Teamworking Organization Statistics Plugin loaded!");
     }
 
-    @Override
-    @KafkaListener(topicPattern = ".*",
+    /**
+     * Offsets are committed when the listeners acknowledge them, and not when the listener method returns, as the events are still being
+     * processed on other threads.
+     *
+     * @return sets the manual acknowledgment mode on the listener containers.
+     */
+    @Bean(FrustrationOnTeamworkingAcknowledgments.CONTAINER_POST_PROCESSOR)
+    public static ContainerPostProcessor<String, Event, AbstractMessageListenerContainer<String, Event>> manualAcknowledgment() {
+        return container -> container.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+    }
+
+    public void addAcknowledgedListener(AcknowledgedEventListener listener) {
+        acknowledgedListeners.add(listener);
+    }
+
+    @KafkaListener(topicPattern = "#{T(com.biit.kafka.plugins.FrustrationOnTeamworkingEventConsumerListener).getTopicPattern("
+            + "'${spring.kafka.frustration.topic:}', '${spring.kafka.frustration.membership.topic:}', "
+            + "'${spring.kafka.frustration.repartition.topic:}')}",
             clientIdPrefix = "#{'${spring.kafka.client.id}'?:T(java.util.UUID).randomUUID().toString()}",
-            groupId = "#{'${spring.kafka.group.id}'?:T(java.util.UUID).randomUUID().toString()}",
-            containerFactory = "templateEventListenerContainerFactory", autoStartup = "${spring.kafka.enabled:true}")
+            groupId = "#{T(com.biit.kafka.plugins.FrustrationOnTeamworkingEventConsumerListener).getGroupId("
+                    + "'${spring.kafka.frustration.group.id:}', '${spring.kafka.group.id:}')}",
+            containerFactory = "templateEventListenerContainerFactory",
+            containerPostProcessor = FrustrationOnTeamworkingAcknowledgments.CONTAINER_POST_PROCESSOR,
+            autoStartup = "#{${spring.kafka.enabled:true} && !${spring.kafka.frustration.listener.batch:false}}")
     public void eventsListener(@Payload(required = false) Event event,
                                final @Header(KafkaHeaders.OFFSET) Integer offset,
                                final @Header(KafkaHeaders.GROUP_ID) String groupId,
                                final @Header(value = KafkaHeaders.KEY, required = false) String key,
                                final @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
                                final @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
-                               final @Header(KafkaHeaders.RECEIVED_TIMESTAMP) long timeStamp) {
+                               final @Header(KafkaHeaders.RECEIVED_TIMESTAMP) long timeStamp,
+                               Acknowledgment acknowledgment) {
         super.eventsListener(event, offset, groupId, key, partition, topic, timeStamp);
+        final List<CompletableFuture<?>> processedEvents = new ArrayList<>();
+        acknowledgedListeners.forEach(listener -> processedEvents.add(listener.onEvent(event, offset, groupId, key, partition, topic, timeStamp)));
+        acknowledgments.acknowledge(CompletableFuture.allOf(processedEvents.toArray(new CompletableFuture<?>[0])), acknowledgment);
+    }
+
+    @Autowired(required = false)
+    public void setRebalanceHandler(FrustrationOnTeamworkingRebalanceHandler rebalanceHandler) {
+        this.rebalanceHandler = rebalanceHandler;
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        if (rebalanceHandler != null) {
+            rebalanceHandler.assigned(assignments, callback);
+        }
+    }
+
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        if (rebalanceHandler != null) {
+            rebalanceHandler.revoked(partitions);
+        }
+    }
+
+    /**
+     * Instances with the same shared group split the partitions between them. Otherwise, each instance receives all events. A group must
+     * be configured, as a random one would lose the committed offsets on each restart.
+     *
+     * @param sharedGroupId the group of all instances, can be empty.
+     * @param groupId       the group of the Kafka configuration, can be empty.
+     * @return the first group defined.
+     * @throws IllegalStateException if no group is defined.
+     */
+    public static String getGroupId(String sharedGroupId, String groupId) {
+        if (sharedGroupId != null && !sharedGroupId.isBlank()) {
+            return sharedGroupId;
+        }
+        if (groupId != null && !groupId.isBlank()) {
+            return groupId;
+        }
+        throw new IllegalStateException("No consumer group defined. Set 'spring.kafka.frustration.group.id' or 'spring.kafka.group.id'.");
+    }
+
+    /**
+     * Only the configured topics are subscribed, so records from other topics are never fetched nor deserialized.
+     *
+     * @param topics the topics from the configuration, can be empty.
+     * @return a pattern that only matches the given topics, or nothing if no topic is configured.
+     */
+    public static String getTopicPattern(String... topics) {
+        final String pattern = Arrays.stream(topics).filter(topic -> topic != null && !topic.isBlank()).map(String::trim).distinct()
+                .map(Pattern::quote).collect(Collectors.joining("|"));
+        return pattern.isEmpty() ? NO_TOPICS_PATTERN : pattern;
     }
 }
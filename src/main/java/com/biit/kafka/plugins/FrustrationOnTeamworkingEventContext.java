@@ -0,0 +1,114 @@
+package com.biit.kafka.plugins;
+
+/*-
+ * #%L
+ * Frustration on Teamworking Organization Statistics Generator
+ * %%
+ * Copyright (C) 2024 - 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.drools.form.DroolsForm;
+import com.biit.drools.form.DroolsSubmittedForm;
+import com.biit.drools.form.provider.DroolsFormProvider;
+import com.biit.kafka.config.ObjectMapperFactory;
+import com.biit.kafka.events.Event;
+import com.biit.kafka.events.EventCustomProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Data shared by all the results generated from one event. The payload is decoded and the form structure is created only once, and the
+ * structure is reused by the organization and team results changing only the tag, labels and variables. Therefore, an output form is only
+ * valid until the next one is requested, and must be converted to an event before. Results of the same context must be sent from the same
+ * thread (see {@link FrustrationOnTeamworkingEventBatcher}).
+ */
+public final class FrustrationOnTeamworkingEventContext {
+    private final Event event;
+    private final DroolsForm droolsForm;
+    private final Map<String, Map<String, Object>> formVariables;
+
+    private FrustrationOnTeamworkingEventContext(Event event, DroolsSubmittedForm droolsSubmittedForm) {
+        this.event = event;
+        //Variables are stored before the structure is reused for the results.
+        this.formVariables = droolsSubmittedForm.getFormVariables();
+        this.droolsForm = DroolsFormProvider.createStructure(droolsSubmittedForm);
+    }
+
+    /**
+     * Decodes the event payload.
+     *
+     * @param event     the received event.
+     * @param formLabel the expected tag of the submitted form.
+     * @return the context or null if the payload is not the expected form.
+     * @throws JsonProcessingException if the payload is not a form.
+     */
+    public static FrustrationOnTeamworkingEventContext of(Event event, String formLabel) throws JsonProcessingException {
+        final DroolsSubmittedForm droolsSubmittedForm = ObjectMapperFactory.getObjectMapper().readValue(event.getPayload(), DroolsSubmittedForm.class);
+        //Is it a new form??
+        if (droolsSubmittedForm != null && Objects.equals(droolsSubmittedForm.getTag(), formLabel)) {
+            return new FrustrationOnTeamworkingEventContext(event, droolsSubmittedForm);
+        }
+        return null;
+    }
+
+    public Event getEvent() {
+        return event;
+    }
+
+    public String getSubmittedBy() {
+        return event.getCreatedBy();
+    }
+
+    public String getOrganization() {
+        return getOrganization(event);
+    }
+
+    /**
+     * Gets the organization of an event without decoding its payload.
+     *
+     * @param event the event.
+     * @return the organization name.
+     */
+    public static String getOrganization(Event event) {
+        return event.getOrganization() != null ? event.getOrganization() : event.getCustomProperty(EventCustomProperties.ORGANIZATION);
+    }
+
+    /**
+     * Variables of the submitted form as element --> variable --> value.
+     *
+     * @return the variables.
+     */
+    public Map<String, Map<String, Object>> getFormVariables() {
+        return formVariables;
+    }
+
+    /**
+     * Prepares the shared form structure for a result. Any previous result obtained from this context is overwritten.
+     *
+     * @param outputLabel the tag and label of the result.
+     * @return the form structure.
+     */
+    public DroolsForm getOutputForm(String outputLabel) {
+        droolsForm.setTag(outputLabel);
+        droolsForm.setLabel(outputLabel);
+        droolsForm.setSubmittedBy(event.getCreatedBy());
+        droolsForm.setSubmittedAt(event.getCreatedAt());
+        return droolsForm;
+    }
+}
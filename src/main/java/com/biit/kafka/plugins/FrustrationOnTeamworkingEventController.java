@@ -23,21 +23,17 @@ package com.biit.kafka.plugins;
 
 import com.biit.drools.form.DroolsForm;
 import com.biit.drools.form.DroolsSubmittedForm;
-import com.biit.drools.form.provider.DroolsFormProvider;
 import com.biit.factmanager.client.SearchParameters;
-import com.biit.factmanager.client.provider.ClientFactProvider;
 import com.biit.factmanager.dto.FactDTO;
-import com.biit.kafka.config.ObjectMapperFactory;
 import com.biit.kafka.events.Event;
 import com.biit.kafka.events.EventCustomProperties;
 import com.biit.rest.exceptions.NotFoundException;
 import com.biit.server.security.model.IAuthenticatedUser;
-import com.biit.usermanager.client.providers.TeamManagerClient;
-import com.biit.usermanager.client.providers.UserManagerClient;
 import com.biit.usermanager.dto.TeamDTO;
 import com.biit.usermanager.dto.UserDTO;
 import com.biit.usermanager.security.exceptions.UserDoesNotExistException;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
@@ -45,108 +41,424 @@ import org.springframework.stereotype.Controller;
 
 import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.TimeZone;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 
 @Controller
 @ConditionalOnExpression("${spring.kafka.enabled:false}")
 public class FrustrationOnTeamworkingEventController {
-    private static final String FORM_LABEL = "The 5 Frustrations on Teamworking";
-    private static final String DROOLS_RESULT_EVENT_TYPE = "DroolsResultForm";
-    private static final String DROOLS_APPLICATION = "BaseFormDroolsEngine";
+    static final String FORM_LABEL = "The 5 Frustrations on Teamworking";
+    static final String DROOLS_RESULT_EVENT_TYPE = "DroolsResultForm";
+    static final String DROOLS_APPLICATION = "BaseFormDroolsEngine";
+    static final String ORGANIZATION_BATCH_KEY = "organization:";
+    static final String TEAM_BATCH_KEY = "team:";
+    private static final String UNIT_BATCH_KEY = "unit:";
+    private static final String TREND_BATCH_KEY = "trend:";
 
-    private final ClientFactProvider clientFactProvider;
+    private final FrustrationOnTeamworkingFactProvider factProvider;
     private final String subscribedTopic;
+    private final String membershipTopic;
+    private final boolean publishSpread;
+    private final boolean unitsEnabled;
 
-    private final UserManagerClient userManagerClient;
-    private final TeamManagerClient teamManagerClient;
+    private final FrustrationOnTeamworkingMembershipCache membershipCache;
+    private final FrustrationOnTeamworkingAggregator frustrationOnTeamworkingAggregator;
+    private final FrustrationOnTeamworkingEventBatcher frustrationOnTeamworkingEventBatcher;
+    private final FrustrationOnTeamworkingEventPipeline frustrationOnTeamworkingEventPipeline;
+    private final FrustrationOnTeamworkingEventSender frustrationOnTeamworkingEventSender;
+    private final FrustrationOnTeamworkingStatisticsStore statisticsStore;
+    private final FrustrationOnTeamworkingTrends trends;
+    private final FrustrationOnTeamworkingDeduplicator deduplicator;
+    private final FrustrationOnTeamworkingRepartitioner repartitioner;
+    private final FrustrationOnTeamworkingMetrics metrics;
 
-    private FrustrationOnTeamworkingEventController(UserManagerClient userManagerClient, TeamManagerClient teamManagerClient) {
-        this.userManagerClient = userManagerClient;
-        this.teamManagerClient = teamManagerClient;
-        this.clientFactProvider = null;
+    private FrustrationOnTeamworkingEventController(FrustrationOnTeamworkingMembershipCache membershipCache) {
+        this.membershipCache = membershipCache;
+        this.factProvider = null;
         this.subscribedTopic = null;
+        this.membershipTopic = null;
+        this.publishSpread = false;
+        this.unitsEnabled = false;
+        this.frustrationOnTeamworkingAggregator = null;
+        this.frustrationOnTeamworkingEventBatcher = null;
+        this.frustrationOnTeamworkingEventPipeline = null;
+        this.frustrationOnTeamworkingEventSender = null;
+        this.statisticsStore = null;
+        this.trends = null;
+        this.deduplicator = null;
+        this.repartitioner = null;
+        this.metrics = null;
     }
 
     @Autowired(required = false)
     public FrustrationOnTeamworkingEventController(FrustrationOnTeamworkingEventConsumerListener eventConsumerListener,
-                                                   ClientFactProvider clientFactProvider,
+                                                   FrustrationOnTeamworkingBatchEventConsumerListener batchEventConsumerListener,
+                                                   FrustrationOnTeamworkingFactProvider factProvider,
                                                    FrustrationOnTeamworkingEventSender frustrationOnTeamworkingEventSender,
                                                    @Value("${spring.kafka.frustration.topic:}") String subscribedTopic,
-                                                   UserManagerClient userManagerClient, TeamManagerClient teamManagerClient) {
-        this.clientFactProvider = clientFactProvider;
+                                                   @Value("${spring.kafka.frustration.membership.topic:}") String membershipTopic,
+                                                   @Value("${spring.kafka.frustration.statistics.spread:false}") boolean publishSpread,
+                                                   @Value("${spring.kafka.frustration.aggregation.units:false}") boolean unitsEnabled,
+                                                   FrustrationOnTeamworkingMembershipCache membershipCache,
+                                                   FrustrationOnTeamworkingAggregator frustrationOnTeamworkingAggregator,
+                                                   FrustrationOnTeamworkingEventBatcher frustrationOnTeamworkingEventBatcher,
+                                                   FrustrationOnTeamworkingEventPipeline frustrationOnTeamworkingEventPipeline,
+                                                   FrustrationOnTeamworkingStatisticsStore statisticsStore,
+                                                   FrustrationOnTeamworkingTrends trends,
+                                                   FrustrationOnTeamworkingDeduplicator deduplicator,
+                                                   FrustrationOnTeamworkingRepartitioner repartitioner,
+                                                   FrustrationOnTeamworkingMetrics metrics) {
+        this.factProvider = factProvider;
         this.subscribedTopic = subscribedTopic;
-        this.userManagerClient = userManagerClient;
-        this.teamManagerClient = teamManagerClient;
+        this.membershipTopic = membershipTopic;
+        this.publishSpread = publishSpread;
+        this.unitsEnabled = unitsEnabled;
+        this.membershipCache = membershipCache;
+        this.frustrationOnTeamworkingAggregator = frustrationOnTeamworkingAggregator;
+        this.frustrationOnTeamworkingEventBatcher = frustrationOnTeamworkingEventBatcher;
+        this.frustrationOnTeamworkingEventPipeline = frustrationOnTeamworkingEventPipeline;
+        this.frustrationOnTeamworkingEventSender = frustrationOnTeamworkingEventSender;
+        this.statisticsStore = statisticsStore;
+        this.trends = trends;
+        this.deduplicator = deduplicator;
+        this.repartitioner = repartitioner;
+        this.metrics = metrics;
 
         //Listen to the topic
         if (eventConsumerListener != null) {
-            eventConsumerListener.addListener((event, offset, groupId, key, partition, topic, timeStamp) -> {
+            eventConsumerListener.addAcknowledgedListener((event, offset, groupId, key, partition, topic, timeStamp) -> {
+                CompletableFuture<?> forwardedEvent = null;
+                CompletableFuture<Void> processedEvent = CompletableFuture.completedFuture(null);
                 try {
-                    if (Objects.equals(topic, subscribedTopic) && event != null && event.getCustomProperty(EventCustomProperties.FACT_TYPE) != null
-                            && Objects.equals(event.getCustomProperty(EventCustomProperties.FACT_TYPE), DROOLS_RESULT_EVENT_TYPE)
-                            && Objects.equals(event.getTag(), FORM_LABEL)) {
-                        FrustrationOnTeamworkingEventsLogger.debug(this.getClass(), "Received event '{}' on topic '{}', key '{}', partition '{}' at '{}'",
-                                event, topic, groupId, key, partition, LocalDateTime.ofInstant(Instant.ofEpochMilli(timeStamp),
-                                        TimeZone.getDefault().toZoneId()));
-                        final DroolsForm organizationDroolsForm = processOrganizationEvent(event);
-                        if (organizationDroolsForm != null) {
-                            frustrationOnTeamworkingEventSender.sendResultEvents(organizationDroolsForm, event.getCreatedBy(),
-                                    event.getOrganization(), event.getSessionId(), event.getUnit());
-                        }
-
-
-                        try {
-                            //Gets the team from the user who has sent the event.
-                            final IAuthenticatedUser user = userManagerClient.findByUsername(event.getCreatedBy()).orElseThrow(
-                                    () -> new UserDoesNotExistException("No user with username '" + event.getCreatedBy() + "'."));
-
-                            final Collection<TeamDTO> teams = this.teamManagerClient.findByUser(UUID.fromString(user.getUID()));
-                            if (teams == null || teams.isEmpty()) {
-                                throw new NotFoundException("No teams found for user '" + user.getUsername() + "'");
-                            }
-                            //We assume that is the first team.
-                            final TeamDTO chosenTeam = teams.iterator().next();
-                            final DroolsForm teamDroolsForm = processTeamEvent(event, chosenTeam);
-                            if (teamDroolsForm != null) {
-                                frustrationOnTeamworkingEventSender.sendResultEvents(teamDroolsForm, event.getCreatedBy(),
-                                        chosenTeam.getOrganization() != null ? chosenTeam.getOrganization().getName() : event.getOrganization(),
-                                        event.getSessionId(), chosenTeam.getName());
-                            }
-                        } catch (Exception e) {
-                            FrustrationOnTeamworkingEventsLogger.errorMessage(this.getClass(), e);
+                    final String filterResult = filter(event, topic);
+                    metrics.event(filterResult);
+                    if (Objects.equals(filterResult, FrustrationOnTeamworkingMetrics.ACCEPTED)) {
+                        if (FrustrationOnTeamworkingEventsLogger.isDebugEnabled()) {
+                            FrustrationOnTeamworkingEventsLogger.debug(this.getClass(), "Received event '{}' with key '{}' on '{}'.", event, key,
+                                    topic + "-" + partition + " at " + LocalDateTime.ofInstant(Instant.ofEpochMilli(timeStamp),
+                                            TimeZone.getDefault().toZoneId()));
                         }
+                        statisticsStore.received(topic, partition, offset);
+                        processedEvent = submitEvents(FrustrationOnTeamworkingEventContext.getOrganization(event),
+                                () -> processEvent(event), () -> statisticsStore.processed(topic, partition, offset));
+                    } else if (Objects.equals(filterResult, FrustrationOnTeamworkingMetrics.FORWARDED)) {
+                        forwardedEvent = repartitioner.forward(event, FrustrationOnTeamworkingEventContext.getOrganization(event));
+                    } else if (Objects.equals(filterResult, FrustrationOnTeamworkingMetrics.MEMBERSHIP)) {
+                        invalidateMemberships();
                     } else {
-                        FrustrationOnTeamworkingEventsLogger.debug(this.getClass(), "Ignoring event topic '" + topic + "'.");
+                        FrustrationOnTeamworkingEventsLogger.debug(this.getClass(), "Ignoring event topic '{}'.", topic);
                     }
                 } catch (Exception e) {
                     FrustrationOnTeamworkingEventsLogger.errorMessage(this.getClass(), e);
                 }
+                if (forwardedEvent != null) {
+                    //Not committed until stored on the repartition topic. A failure is thrown to the container, that seeks back to the record.
+                    forwardedEvent.join();
+                }
+                return processedEvent;
+            });
+        }
+
+        //Listen to the topic by polls.
+        if (batchEventConsumerListener != null) {
+            batchEventConsumerListener.addListener(records -> {
+                final List<CompletableFuture<?>> forwardedEvents = new ArrayList<>();
+                CompletableFuture<Void> processedEvents = CompletableFuture.completedFuture(null);
+                try {
+                    processedEvents = processEvents(records, forwardedEvents);
+                } catch (Exception e) {
+                    FrustrationOnTeamworkingEventsLogger.errorMessage(this.getClass(), e);
+                }
+                //Not committed until stored on the repartition topic. A failure is thrown to the container, that seeks back to the batch.
+                CompletableFuture.allOf(forwardedEvents.toArray(new CompletableFuture<?>[0])).join();
+                return processedEvents;
+            });
+        }
+    }
+
+
+    /**
+     * Checks if an event must be processed.
+     *
+     * @param event the received event.
+     * @param topic the topic of the event.
+     * @return {@link FrustrationOnTeamworkingMetrics#ACCEPTED}, {@link FrustrationOnTeamworkingMetrics#MEMBERSHIP},
+     * {@link FrustrationOnTeamworkingMetrics#FORWARDED} or the reason why the event is ignored.
+     */
+    private String filter(Event event, String topic) {
+        final String result;
+        if (!Objects.equals(topic, subscribedTopic) && !repartitioner.isRepartitionTopic(topic)) {
+            result = FrustrationOnTeamworkingMetrics.REJECTED_TOPIC;
+        } else if (event == null) {
+            result = FrustrationOnTeamworkingMetrics.REJECTED_EMPTY;
+        } else if (!Objects.equals(event.getCustomProperty(EventCustomProperties.FACT_TYPE), DROOLS_RESULT_EVENT_TYPE)) {
+            result = FrustrationOnTeamworkingMetrics.REJECTED_FACT_TYPE;
+        } else if (!Objects.equals(event.getTag(), FORM_LABEL)) {
+            result = FrustrationOnTeamworkingMetrics.REJECTED_TAG;
+        } else if (repartitioner.isEnabled() && Objects.equals(topic, subscribedTopic)) {
+            //Processed by the owner of the organization.
+            return FrustrationOnTeamworkingMetrics.FORWARDED;
+        } else if (deduplicator.isDuplicate(event)) {
+            //Redelivered, the results have already been sent. Registered once processed.
+            result = FrustrationOnTeamworkingMetrics.REJECTED_DUPLICATE;
+        } else if (deduplicator.isStale(event, FrustrationOnTeamworkingEventContext.getOrganization(event))) {
+            //Received out of order, the user has already a newer submission.
+            result = FrustrationOnTeamworkingMetrics.REJECTED_STALE;
+        } else {
+            return FrustrationOnTeamworkingMetrics.ACCEPTED;
+        }
+        return isMembershipEvent(topic) ? FrustrationOnTeamworkingMetrics.MEMBERSHIP : result;
+    }
+
+
+    private boolean isMembershipEvent(String topic) {
+        return membershipTopic != null && !membershipTopic.isEmpty() && Objects.equals(topic, membershipTopic);
+    }
+
+
+    private void invalidateMemberships() {
+        //Teams have changed.
+        membershipCache.invalidate();
+        frustrationOnTeamworkingAggregator.clearTeamAggregates();
+    }
+
+
+    /**
+     * Processes all records of a poll. Events are grouped by organization, so each aggregate is rebuilt at most once from the Fact Manager
+     * and only one result is sent for each organization and team.
+     *
+     * @param records         the records of the poll.
+     * @param forwardedEvents filled with the events of other instances, completed when forwarded.
+     * @return completed when the results of all accepted events are sent.
+     */
+    private CompletableFuture<Void> processEvents(List<ConsumerRecord<String, Event>> records, List<CompletableFuture<?>> forwardedEvents) {
+        final Map<String, List<ConsumerRecord<String, Event>>> recordsByOrganization = new LinkedHashMap<>();
+        for (ConsumerRecord<String, Event> eventRecord : records) {
+            final String filterResult = filter(eventRecord.value(), eventRecord.topic());
+            metrics.event(filterResult);
+            if (Objects.equals(filterResult, FrustrationOnTeamworkingMetrics.ACCEPTED)) {
+                statisticsStore.received(eventRecord.topic(), eventRecord.partition(), eventRecord.offset());
+                recordsByOrganization.computeIfAbsent(FrustrationOnTeamworkingEventContext.getOrganization(eventRecord.value()),
+                        k -> new ArrayList<>()).add(eventRecord);
+            } else if (Objects.equals(filterResult, FrustrationOnTeamworkingMetrics.FORWARDED)) {
+                forwardedEvents.add(repartitioner.forward(eventRecord.value(), FrustrationOnTeamworkingEventContext.getOrganization(eventRecord.value())));
+            } else if (Objects.equals(filterResult, FrustrationOnTeamworkingMetrics.MEMBERSHIP)) {
+                invalidateMemberships();
+            }
+        }
+        final List<CompletableFuture<Void>> processedEvents = new ArrayList<>();
+        recordsByOrganization.forEach((organization, organizationRecords) ->
+                processedEvents.add(submitEvents(organization, () -> processOrganizationEvents(organizationRecords), () ->
+                        organizationRecords.forEach(eventRecord ->
+                                statisticsStore.processed(eventRecord.topic(), eventRecord.partition(), eventRecord.offset())))));
+        return allOf(processedEvents);
+    }
+
+
+    /**
+     * Processes events on the lane of their organization, so the events of the same organization are processed in order.
+     *
+     * @param organization the organization of the events.
+     * @param processing   processes the events, and returns when their results are sent.
+     * @param processed    registers the events as processed on the statistics store.
+     * @return completed when the results of the events are sent, and their offsets can be committed.
+     */
+    private CompletableFuture<Void> submitEvents(String organization, Supplier<CompletableFuture<Void>> processing, Runnable processed) {
+        final CompletableFuture<Void> processedEvents = new CompletableFuture<>();
+        frustrationOnTeamworkingEventPipeline.submit(organization, () -> {
+            CompletableFuture<Void> sentResults;
+            try {
+                sentResults = processing.get();
+            } catch (Exception e) {
+                FrustrationOnTeamworkingEventsLogger.errorMessage(this.getClass(), e);
+                sentResults = CompletableFuture.completedFuture(null);
+            }
+            sentResults.whenComplete((result, e) -> {
+                try {
+                    processed.run();
+                } finally {
+                    processedEvents.complete(null);
+                }
             });
+        });
+        return processedEvents;
+    }
+
+
+    private static CompletableFuture<Void> allOf(Collection<CompletableFuture<Void>> futures) {
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+    }
+
+
+    private CompletableFuture<Void> processOrganizationEvents(List<ConsumerRecord<String, Event>> records) {
+        FrustrationOnTeamworkingEventContext organizationContext = null;
+        FrustrationOnTeamworkingAggregate organizationAggregate = null;
+        final Map<String, Supplier<CompletableFuture<Void>>> teamResults = new LinkedHashMap<>();
+        //Units and trends of the organization.
+        final Map<String, Supplier<CompletableFuture<Void>>> organizationResults = new LinkedHashMap<>();
+        for (ConsumerRecord<String, Event> eventRecord : records) {
+            try {
+                final FrustrationOnTeamworkingEventContext context = FrustrationOnTeamworkingEventContext.of(eventRecord.value(), FORM_LABEL);
+                if (context == null || isProcessed(context)) {
+                    continue;
+                }
+                final FrustrationOnTeamworkingAggregate aggregate = processOrganizationEvent(context);
+                if (aggregate != null) {
+                    deduplicator.processed(context.getEvent(), context.getOrganization());
+                    organizationContext = context;
+                    organizationAggregate = aggregate;
+                    //Only the last submission of each unit is sent.
+                    final FrustrationOnTeamworkingAggregate unitAggregate = processUnitEvent(context, aggregate);
+                    if (unitAggregate != null) {
+                        organizationResults.put(getUnitBatchKey(context), () -> sendUnitResult(context, unitAggregate));
+                    }
+                    organizationResults.putAll(processOrganizationTrendEvents(context));
+                }
+                //Only the last submission of each team is sent.
+                teamResults.putAll(processTeamEvents(context));
+            } catch (JsonProcessingException e) {
+                FrustrationOnTeamworkingEventsLogger.debug(this.getClass(), "Received event is not a NCA FormResult!");
+            } catch (Exception e) {
+                FrustrationOnTeamworkingEventsLogger.errorMessage(this.getClass(), e);
+            }
+        }
+        final List<CompletableFuture<Void>> sentResults = new ArrayList<>();
+        if (organizationAggregate != null) {
+            final FrustrationOnTeamworkingEventContext context = organizationContext;
+            final FrustrationOnTeamworkingAggregate aggregate = organizationAggregate;
+            sentResults.add(frustrationOnTeamworkingEventBatcher.submit(ORGANIZATION_BATCH_KEY + context.getOrganization(),
+                    () -> sendOrganizationResult(context, aggregate)));
+        }
+        organizationResults.forEach((key, result) -> sentResults.add(frustrationOnTeamworkingEventBatcher.submit(key, result)));
+        teamResults.forEach((key, result) -> sentResults.add(frustrationOnTeamworkingEventBatcher.submit(key, result)));
+        return allOf(sentResults);
+    }
+
+
+    private CompletableFuture<Void> processEvent(Event event) {
+        try {
+            final FrustrationOnTeamworkingEventContext context = FrustrationOnTeamworkingEventContext.of(event, FORM_LABEL);
+            if (context != null && !isProcessed(context)) {
+                return processEvent(context);
+            }
+        } catch (JsonProcessingException e) {
+            FrustrationOnTeamworkingEventsLogger.debug(this.getClass(), "Received event is not a NCA FormResult!");
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+
+    /**
+     * Checks again before processing an event, as the same event can be accepted twice before the first one is processed.
+     *
+     * @param context the received event.
+     * @return true if the event or a newer submission of the same user has already been processed.
+     */
+    private boolean isProcessed(FrustrationOnTeamworkingEventContext context) {
+        if (deduplicator.isDuplicate(context.getEvent()) || deduplicator.isStale(context.getEvent(), context.getOrganization())) {
+            FrustrationOnTeamworkingEventsLogger.debug(this.getClass(), "Event '{}' already processed.", context.getEvent().getMessageId());
+            return true;
         }
+        return false;
     }
 
 
-    private DroolsForm processOrganizationEvent(Event event) {
+    /**
+     * Updates the organization, unit and team aggregates with a submission. Results are sent when the batching window of each one is closed.
+     *
+     * @param context the received event.
+     * @return completed when all results are sent.
+     */
+    private CompletableFuture<Void> processEvent(FrustrationOnTeamworkingEventContext context) {
+        final List<CompletableFuture<Void>> sentResults = new ArrayList<>();
+        final FrustrationOnTeamworkingAggregate organizationAggregate = processOrganizationEvent(context);
+        if (organizationAggregate != null) {
+            deduplicator.processed(context.getEvent(), context.getOrganization());
+            sentResults.add(frustrationOnTeamworkingEventBatcher.submit(ORGANIZATION_BATCH_KEY + context.getOrganization(),
+                    () -> sendOrganizationResult(context, organizationAggregate)));
+            final FrustrationOnTeamworkingAggregate unitAggregate = processUnitEvent(context, organizationAggregate);
+            if (unitAggregate != null) {
+                sentResults.add(frustrationOnTeamworkingEventBatcher.submit(getUnitBatchKey(context), () -> sendUnitResult(context, unitAggregate)));
+            }
+            processOrganizationTrendEvents(context).forEach((key, result) -> sentResults.add(frustrationOnTeamworkingEventBatcher.submit(key, result)));
+        }
+
         try {
-            final DroolsSubmittedForm droolsSubmittedForm = ObjectMapperFactory.getObjectMapper().readValue(event.getPayload(), DroolsSubmittedForm.class);
-            //Is it a new form??
-            if (droolsSubmittedForm != null && Objects.equals(droolsSubmittedForm.getTag(), FORM_LABEL)) {
-                final DroolsForm droolsForm = DroolsFormProvider.createStructure(droolsSubmittedForm);
-                droolsForm.setTag(FrustrationOnTeamworkingEventConverter.FORM_ORGANIZATION_OUTPUT);
-                droolsForm.setLabel(FrustrationOnTeamworkingEventConverter.FORM_ORGANIZATION_OUTPUT);
-                droolsForm.setSubmittedBy(event.getCreatedBy());
-                droolsForm.setSubmittedAt(event.getCreatedAt());
-                populateOrganizationForms(droolsForm, event.getOrganization() != null ? event.getOrganization()
-                        : event.getCustomProperty(EventCustomProperties.ORGANIZATION));
-                return droolsForm;
+            processTeamEvents(context).forEach((key, result) -> sentResults.add(frustrationOnTeamworkingEventBatcher.submit(key, result)));
+        } catch (Exception e) {
+            FrustrationOnTeamworkingEventsLogger.errorMessage(this.getClass(), e);
+        }
+        return allOf(sentResults);
+    }
+
+
+    /**
+     * Updates the aggregates of all the teams of the user who has sent the event. Teams are updated concurrently, sharing the decoded
+     * submission, and their results are returned together to be sent once all of them are ready.
+     *
+     * @param context the received event.
+     * @return the result of each team and its trends by batch key.
+     * @throws UserDoesNotExistException if the user does not exist.
+     */
+    private Map<String, Supplier<CompletableFuture<Void>>> processTeamEvents(FrustrationOnTeamworkingEventContext context)
+            throws UserDoesNotExistException {
+        final List<TeamDTO> teams = getTeams(context);
+        final List<FrustrationOnTeamworkingAggregate> teamAggregates = frustrationOnTeamworkingAggregator.fanOut(teams,
+                team -> processTeamEvent(context, team));
+        final Map<String, Supplier<CompletableFuture<Void>>> teamResults = new LinkedHashMap<>();
+        for (int i = 0; i < teams.size(); i++) {
+            final TeamDTO team = teams.get(i);
+            final FrustrationOnTeamworkingAggregate teamAggregate = teamAggregates.get(i);
+            if (teamAggregate != null) {
+                teamResults.put(TEAM_BATCH_KEY + team.getId(), () -> sendTeamResult(context, team, teamAggregate));
+                final String organization = team.getOrganization() != null ? team.getOrganization().getName() : context.getOrganization();
+                teamResults.putAll(processTrendEvents(context, TEAM_BATCH_KEY + team.getId(), FrustrationOnTeamworkingEventConverter.FORM_TEAM_OUTPUT,
+                        period -> trends.getTeamTrend(context.getOrganization(), String.valueOf(team.getId()), period), organization, team.getName()));
             }
+        }
+        return teamResults;
+    }
+
+
+    /**
+     * Gets the teams of the user who has sent the event.
+     *
+     * @param context the received event.
+     * @return the teams.
+     * @throws UserDoesNotExistException if the user does not exist.
+     */
+    private List<TeamDTO> getTeams(FrustrationOnTeamworkingEventContext context) throws UserDoesNotExistException {
+        long start = System.nanoTime();
+        final IAuthenticatedUser user = membershipCache.findUser(context.getSubmittedBy()).orElseThrow(
+                () -> new UserDoesNotExistException("No user with username '" + context.getSubmittedBy() + "'."));
+        metrics.stage(FrustrationOnTeamworkingMetrics.USER_LOOKUP, start);
+
+        start = System.nanoTime();
+        final Collection<TeamDTO> teams = membershipCache.findTeams(UUID.fromString(user.getUID()));
+        metrics.stage(FrustrationOnTeamworkingMetrics.TEAM_LOOKUP, start);
+        if (teams == null || teams.isEmpty()) {
+            throw new NotFoundException("No teams found for user '" + user.getUsername() + "'");
+        }
+        return new ArrayList<>(teams);
+    }
+
+
+    private FrustrationOnTeamworkingAggregate processOrganizationEvent(FrustrationOnTeamworkingEventContext context) {
+        try {
+            return updateOrganizationAggregate(context.getOrganization(), context.getSubmittedBy(), context.getFormVariables());
         } catch (JsonProcessingException e) {
             FrustrationOnTeamworkingEventsLogger.debug(this.getClass(), "Received event is not a NCA FormResult!");
         } catch (Exception e) {
@@ -156,52 +468,223 @@ public class FrustrationOnTeamworkingEventController {
     }
 
 
+    private CompletableFuture<Void> sendOrganizationResult(FrustrationOnTeamworkingEventContext context, FrustrationOnTeamworkingAggregate aggregate) {
+        final Event event = context.getEvent();
+        final DroolsForm organizationDroolsForm = context.getOutputForm(FrustrationOnTeamworkingEventConverter.FORM_ORGANIZATION_OUTPUT);
+        setOrganizationVariables(organizationDroolsForm, context.getOrganization(), aggregate);
+        final CompletableFuture<Boolean> sentResult = frustrationOnTeamworkingEventSender.sendResultEvents(ORGANIZATION_BATCH_KEY
+                + context.getOrganization(), organizationDroolsForm, event.getCreatedBy(), event.getOrganization(), event.getSessionId(), event.getUnit());
+        return lag(sentResult, FrustrationOnTeamworkingMetrics.ORGANIZATION, event.getCreatedAt(), aggregate.getContributors());
+    }
+
+
+    /**
+     * Updates the running aggregate of the organization with the new submission of a user. The aggregate is only rebuilt from the Fact Manager
+     * if it is not available yet. If the Fact Manager is unavailable, the aggregate pending of reconciliation is used.
+     *
+     * @param organization  the organization.
+     * @param submittedBy   the user that has submitted the form.
+     * @param formVariables the variables of the submitted form.
+     * @return the updated aggregate.
+     * @throws JsonProcessingException if a fact cannot be parsed.
+     */
+    protected FrustrationOnTeamworkingAggregate updateOrganizationAggregate(String organization, String submittedBy,
+                                                                            Map<String, Map<String, Object>> formVariables)
+            throws JsonProcessingException {
+        FrustrationOnTeamworkingAggregate aggregate = frustrationOnTeamworkingAggregator.getOrganizationAggregate(organization);
+        if (aggregate == null) {
+            try {
+                aggregate = getOrganizationAggregate(organization);
+                frustrationOnTeamworkingAggregator.setOrganizationAggregate(organization, aggregate);
+            } catch (FrustrationOnTeamworkingGuard.UnavailableException e) {
+                aggregate = getDegradedAggregate(frustrationOnTeamworkingAggregator.getCachedOrganizationAggregate(organization),
+                        FrustrationOnTeamworkingMetrics.ORGANIZATION, e);
+            }
+        }
+        aggregate.setContribution(submittedBy, formVariables);
+        return aggregate;
+    }
+
+
+    /**
+     * Rebuilds the organization aggregate from all facts stored on the Fact Manager.
+     *
+     * @param droolsForm   the form that will contain the averages.
+     * @param organization the organization.
+     * @throws JsonProcessingException if a fact cannot be parsed.
+     */
     protected void populateOrganizationForms(DroolsForm droolsForm, String organization) throws JsonProcessingException {
         if (droolsForm == null) {
             return;
         }
-        final DroolsSubmittedForm organizationSubmittedForm = ((DroolsSubmittedForm) droolsForm.getDroolsSubmittedForm());
-        organizationSubmittedForm.setFormVariables(new HashMap<>());
+        final FrustrationOnTeamworkingAggregate aggregate = getOrganizationAggregate(organization);
+        frustrationOnTeamworkingAggregator.setOrganizationAggregate(organization, aggregate);
+        setOrganizationVariables(droolsForm, organization, aggregate);
+    }
+
 
-        //Gets all forms from the organization.
+    private FrustrationOnTeamworkingAggregate getOrganizationAggregate(String organization) throws JsonProcessingException {
+        //Gets all forms from the organization. Without organization, all forms are used.
         final Map<SearchParameters, Object> filter = new HashMap<>();
         filter.putIfAbsent(SearchParameters.APPLICATION, DROOLS_APPLICATION);
-        filter.putIfAbsent(SearchParameters.ORGANIZATION, organization);
+        if (organization != null) {
+            filter.putIfAbsent(SearchParameters.ORGANIZATION, organization);
+        }
         filter.putIfAbsent(SearchParameters.LATEST_BY_USER, "true");
         filter.putIfAbsent(SearchParameters.GROUP, subscribedTopic);
         filter.putIfAbsent(SearchParameters.ELEMENT_NAME, FORM_LABEL);
         filter.putIfAbsent(SearchParameters.FACT_TYPE, DROOLS_RESULT_EVENT_TYPE);
-        final List<FactDTO> frustrationFacts = clientFactProvider.get(filter);
+        return getAggregate(filter, null);
+    }
 
-        for (FactDTO frustrationEvent : frustrationFacts) {
-            //Read the variables and populate a submittedForm
-            final DroolsSubmittedForm organizationFrustrationForm = ObjectMapperFactory.getObjectMapper().readValue(frustrationEvent.getValue(),
-                    DroolsSubmittedForm.class);
 
-            organizationFrustrationForm.getFormVariables().forEach((element, variableValues) -> {
-                //Correct form name.
-                final String elementCorrected = element.replace(FORM_LABEL, FrustrationOnTeamworkingEventConverter.FORM_ORGANIZATION_OUTPUT);
-                aggregateValues(organizationSubmittedForm, frustrationFacts, variableValues, elementCorrected);
-            });
+    private FrustrationOnTeamworkingAggregate processUnitEvent(FrustrationOnTeamworkingEventContext context,
+                                                               FrustrationOnTeamworkingAggregate organizationAggregate) {
+        final String unit = context.getEvent().getUnit();
+        if (!unitsEnabled || unit == null || unit.isBlank()) {
+            return null;
+        }
+        try {
+            return updateUnitAggregate(context.getOrganization(), unit, organizationAggregate, context.getSubmittedBy(), context.getFormVariables());
+        } catch (Exception e) {
+            FrustrationOnTeamworkingEventsLogger.errorMessage(this.getClass(), e);
+        }
+        return null;
+    }
+
+
+    private String getUnitBatchKey(FrustrationOnTeamworkingEventContext context) {
+        return UNIT_BATCH_KEY + context.getOrganization() + ":" + context.getEvent().getUnit();
+    }
+
+
+    private CompletableFuture<Void> sendUnitResult(FrustrationOnTeamworkingEventContext context, FrustrationOnTeamworkingAggregate aggregate) {
+        final Event event = context.getEvent();
+        final DroolsForm unitDroolsForm = context.getOutputForm(FrustrationOnTeamworkingEventConverter.FORM_UNIT_OUTPUT);
+        final DroolsSubmittedForm unitSubmittedForm = ((DroolsSubmittedForm) unitDroolsForm.getDroolsSubmittedForm());
+        unitSubmittedForm.setFormVariables(getFormVariables(aggregate, FrustrationOnTeamworkingEventConverter.FORM_UNIT_OUTPUT));
+        unitSubmittedForm.setTag(FrustrationOnTeamworkingEventConverter.FORM_UNIT_OUTPUT);
+        unitSubmittedForm.setOrganization(context.getOrganization());
+        final CompletableFuture<Boolean> sentResult = frustrationOnTeamworkingEventSender.sendResultEvents(getUnitBatchKey(context), unitDroolsForm,
+                event.getCreatedBy(), context.getOrganization(), event.getSessionId(), event.getUnit());
+        return lag(sentResult, FrustrationOnTeamworkingMetrics.UNIT, event.getCreatedAt(), aggregate.getContributors());
+    }
+
+
+    /**
+     * Updates the running aggregate of a unit with the new submission of a user. If it is not available yet, the aggregate is derived from
+     * the organization aggregate, taking the users whose latest submission belongs to the unit. The Fact Manager is not requested.
+     *
+     * @param organization          the organization.
+     * @param unit                  the unit of the submission.
+     * @param organizationAggregate the organization aggregate, already updated with the submission.
+     * @param submittedBy           the user that has submitted the form.
+     * @param formVariables         the variables of the submitted form.
+     * @return the updated aggregate.
+     */
+    protected FrustrationOnTeamworkingAggregate updateUnitAggregate(String organization, String unit,
+                                                                    FrustrationOnTeamworkingAggregate organizationAggregate, String submittedBy,
+                                                                    Map<String, Map<String, Object>> formVariables) {
+        final String previousUnit = frustrationOnTeamworkingAggregator.setUnit(organization, submittedBy, unit);
+        if (previousUnit != null && !Objects.equals(previousUnit, unit)) {
+            //User has moved to another unit.
+            final FrustrationOnTeamworkingAggregate previousAggregate = frustrationOnTeamworkingAggregator.getUnitAggregate(organization, previousUnit);
+            if (previousAggregate != null) {
+                previousAggregate.removeContribution(submittedBy);
+            }
+        }
+        FrustrationOnTeamworkingAggregate aggregate = frustrationOnTeamworkingAggregator.getUnitAggregate(organization, unit);
+        if (aggregate == null) {
+            aggregate = organizationAggregate.subset(user -> Objects.equals(frustrationOnTeamworkingAggregator.getUnit(organization, user), unit));
+            frustrationOnTeamworkingAggregator.setUnitAggregate(organization, unit, aggregate);
+        }
+        aggregate.setContribution(submittedBy, formVariables);
+        return aggregate;
+    }
+
+
+    private Map<String, Supplier<CompletableFuture<Void>>> processOrganizationTrendEvents(FrustrationOnTeamworkingEventContext context) {
+        return processTrendEvents(context, ORGANIZATION_BATCH_KEY + context.getOrganization(),
+                FrustrationOnTeamworkingEventConverter.FORM_ORGANIZATION_OUTPUT,
+                period -> trends.getOrganizationTrend(context.getOrganization(), period), context.getOrganization(), context.getEvent().getUnit());
+    }
+
+
+    /**
+     * Adds the submission to the trends of an organization or team, on the period of its creation date.
+     *
+     * @param context      the received event.
+     * @param batchKey     the batch key of the organization or team result.
+     * @param outputLabel  the label of the organization or team result. The label of the period is appended.
+     * @param trendGetter  gets the trend of the organization or team for a period.
+     * @param organization the organization of the result.
+     * @param unit         the unit of the result.
+     * @return the result of each updated period by batch key.
+     */
+    private Map<String, Supplier<CompletableFuture<Void>>> processTrendEvents(
+            FrustrationOnTeamworkingEventContext context, String batchKey, String outputLabel,
+            Function<FrustrationOnTeamworkingTrend.Period, FrustrationOnTeamworkingTrend> trendGetter, String organization, String unit) {
+        final Map<String, Supplier<CompletableFuture<Void>>> trendResults = new LinkedHashMap<>();
+        if (trends == null || !trends.isEnabled() || context.getEvent().getCreatedAt() == null) {
+            return trendResults;
         }
+        for (FrustrationOnTeamworkingTrend.Period period : trends.getPeriods()) {
+            final FrustrationOnTeamworkingTrend trend = trendGetter.apply(period);
+            final Long index = trend.add(context.getEvent().getCreatedAt(), context.getSubmittedBy(), context.getFormVariables());
+            if (index != null) {
+                //One key by period, so a compacted topic keeps the whole series.
+                final String key = TREND_BATCH_KEY + batchKey + ":" + period.getLabel() + ":" + period.getStart(index);
+                trendResults.put(key, () -> sendTrendResult(context, key, trend, index, outputLabel + " " + period.getLabel(), organization, unit));
+            }
+        }
+        return trendResults;
+    }
 
+
+    private CompletableFuture<Void> sendTrendResult(FrustrationOnTeamworkingEventContext context, String key, FrustrationOnTeamworkingTrend trend,
+                                                    long index, String outputLabel, String organization, String unit) {
+        final Map<String, Map<String, Object>> formVariables = trend.getFormVariables(index, FORM_LABEL, outputLabel, publishSpread);
+        if (formVariables == null) {
+            //Replaced by a newer period.
+            return CompletableFuture.completedFuture(null);
+        }
+        final Event event = context.getEvent();
+        final DroolsForm trendDroolsForm = context.getOutputForm(outputLabel);
+        trendDroolsForm.setSubmittedAt(trend.getPeriod().getStart(index).atStartOfDay());
+        final DroolsSubmittedForm trendSubmittedForm = ((DroolsSubmittedForm) trendDroolsForm.getDroolsSubmittedForm());
+        trendSubmittedForm.setFormVariables(formVariables);
+        trendSubmittedForm.setTag(outputLabel);
+        trendSubmittedForm.setOrganization(organization);
+        //One key by period, so deltas are not tracked.
+        return frustrationOnTeamworkingEventSender.sendCompleteResultEvents(key, trendDroolsForm, event.getCreatedBy(), organization,
+                event.getSessionId(), unit).thenApply(published -> null);
+    }
+
+
+    /**
+     * Records the lag of a result when the broker acknowledges it, as results are sent asynchronously. Results that are not published
+     * (unchanged, replaced by a newer one or discarded) are not recorded.
+     */
+    private CompletableFuture<Void> lag(CompletableFuture<Boolean> sentResult, String result, LocalDateTime createdAt, int contributors) {
+        return sentResult.thenAccept(published -> {
+            if (published) {
+                metrics.lag(result, createdAt, contributors);
+            }
+        });
+    }
+
+
+    private void setOrganizationVariables(DroolsForm droolsForm, String organization, FrustrationOnTeamworkingAggregate aggregate) {
+        final DroolsSubmittedForm organizationSubmittedForm = ((DroolsSubmittedForm) droolsForm.getDroolsSubmittedForm());
+        organizationSubmittedForm.setFormVariables(getFormVariables(aggregate, FrustrationOnTeamworkingEventConverter.FORM_ORGANIZATION_OUTPUT));
         organizationSubmittedForm.setTag(FrustrationOnTeamworkingEventConverter.FORM_ORGANIZATION_OUTPUT);
         organizationSubmittedForm.setOrganization(organization);
     }
 
-    private DroolsForm processTeamEvent(Event event, TeamDTO team) {
+
+    private FrustrationOnTeamworkingAggregate processTeamEvent(FrustrationOnTeamworkingEventContext context, TeamDTO team) {
         try {
-            final DroolsSubmittedForm droolsSubmittedForm = ObjectMapperFactory.getObjectMapper().readValue(event.getPayload(), DroolsSubmittedForm.class);
-            //Is it a new form??
-            if (droolsSubmittedForm != null && Objects.equals(droolsSubmittedForm.getTag(), FORM_LABEL)) {
-                final DroolsForm droolsForm = DroolsFormProvider.createStructure(droolsSubmittedForm);
-                droolsForm.setTag(FrustrationOnTeamworkingEventConverter.FORM_TEAM_OUTPUT);
-                droolsForm.setLabel(FrustrationOnTeamworkingEventConverter.FORM_TEAM_OUTPUT);
-                droolsForm.setSubmittedBy(event.getCreatedBy());
-                droolsForm.setSubmittedAt(event.getCreatedAt());
-                populateTeamForms(droolsForm, team);
-                return droolsForm;
-            }
+            return updateTeamAggregate(team, context.getSubmittedBy(), context.getFormVariables());
         } catch (JsonProcessingException e) {
             FrustrationOnTeamworkingEventsLogger.debug(this.getClass(), "Received event is not a NCA FormResult!");
         } catch (Exception e) {
@@ -211,11 +694,74 @@ public class FrustrationOnTeamworkingEventController {
     }
 
 
+    private CompletableFuture<Void> sendTeamResult(FrustrationOnTeamworkingEventContext context, TeamDTO team,
+                                                   FrustrationOnTeamworkingAggregate aggregate) {
+        final Event event = context.getEvent();
+        final DroolsForm teamDroolsForm = context.getOutputForm(FrustrationOnTeamworkingEventConverter.FORM_TEAM_OUTPUT);
+        setTeamVariables(teamDroolsForm, team, aggregate);
+        final CompletableFuture<Boolean> sentResult = frustrationOnTeamworkingEventSender.sendResultEvents(TEAM_BATCH_KEY + team.getId(), teamDroolsForm,
+                event.getCreatedBy(), team.getOrganization() != null ? team.getOrganization().getName() : event.getOrganization(),
+                event.getSessionId(), team.getName());
+        return lag(sentResult, FrustrationOnTeamworkingMetrics.TEAM, event.getCreatedAt(), aggregate.getContributors());
+    }
+
+
+    /**
+     * Updates the running aggregate of the team with the new submission of a user. If it is not available yet, the aggregate is derived
+     * from the aggregate of its organization, and only rebuilt from the Fact Manager if the organization is not available either. If the
+     * Fact Manager is unavailable, the aggregate pending of reconciliation is used.
+     *
+     * @param team          the team.
+     * @param submittedBy   the user that has submitted the form.
+     * @param formVariables the variables of the submitted form.
+     * @return the updated aggregate.
+     * @throws JsonProcessingException if a fact cannot be parsed.
+     */
+    protected FrustrationOnTeamworkingAggregate updateTeamAggregate(TeamDTO team, String submittedBy, Map<String, Map<String, Object>> formVariables)
+            throws JsonProcessingException {
+        FrustrationOnTeamworkingAggregate aggregate = frustrationOnTeamworkingAggregator.getTeamAggregate(String.valueOf(team.getId()));
+        if (aggregate == null) {
+            try {
+                aggregate = deriveTeamAggregate(team);
+                frustrationOnTeamworkingAggregator.setTeamAggregate(String.valueOf(team.getId()), aggregate);
+            } catch (FrustrationOnTeamworkingGuard.UnavailableException e) {
+                aggregate = getDegradedAggregate(frustrationOnTeamworkingAggregator.getCachedTeamAggregate(String.valueOf(team.getId())),
+                        FrustrationOnTeamworkingMetrics.TEAM, e);
+            }
+        }
+        aggregate.setContribution(submittedBy, formVariables);
+        return aggregate;
+    }
+
+
+    /**
+     * Rebuilds the team aggregate from all facts stored on the Fact Manager.
+     *
+     * @param droolsForm the form that will contain the averages.
+     * @param team       the team.
+     * @throws JsonProcessingException if a fact cannot be parsed.
+     */
     protected void populateTeamForms(DroolsForm droolsForm, TeamDTO team) throws JsonProcessingException {
-        final DroolsSubmittedForm teamSubmittedForm = ((DroolsSubmittedForm) droolsForm.getDroolsSubmittedForm());
-        teamSubmittedForm.setFormVariables(new HashMap<>());
+        final FrustrationOnTeamworkingAggregate aggregate = getTeamAggregate(team);
+        frustrationOnTeamworkingAggregator.setTeamAggregate(String.valueOf(team.getId()), aggregate);
+        setTeamVariables(droolsForm, team, aggregate);
+    }
+
+
+    private FrustrationOnTeamworkingAggregate deriveTeamAggregate(TeamDTO team) throws JsonProcessingException {
+        final FrustrationOnTeamworkingAggregate organizationAggregate = team.getOrganization() != null
+                ? frustrationOnTeamworkingAggregator.getOrganizationAggregate(team.getOrganization().getName()) : null;
+        if (organizationAggregate == null) {
+            return getTeamAggregate(team);
+        }
+        //Members have the same latest submission on the organization, as both are filtered by the organization of the team.
+        final Set<String> members = membershipCache.findMembers(team).stream().map(IAuthenticatedUser::getUsername).collect(Collectors.toSet());
+        return organizationAggregate.subset(members::contains);
+    }
 
-        final Collection<UserDTO> members = userManagerClient.findByTeam(team.getId());
+
+    private FrustrationOnTeamworkingAggregate getTeamAggregate(TeamDTO team) throws JsonProcessingException {
+        final Collection<UserDTO> members = membershipCache.findMembers(team);
 
         //Gets all forms from the team.
         final Map<SearchParameters, Object> filter = new HashMap<>();
@@ -225,35 +771,48 @@ public class FrustrationOnTeamworkingEventController {
         filter.putIfAbsent(SearchParameters.GROUP, subscribedTopic);
         filter.putIfAbsent(SearchParameters.ELEMENT_NAME, FORM_LABEL);
         filter.putIfAbsent(SearchParameters.FACT_TYPE, DROOLS_RESULT_EVENT_TYPE);
-        filter.putIfAbsent(SearchParameters.CREATED_BY, members.stream().map(IAuthenticatedUser::getUsername).toList());
-        final List<FactDTO> frustrationFacts = clientFactProvider.get(filter);
-
-        for (FactDTO frustrationEvent : frustrationFacts) {
-            //Read the variables and populate a submittedForm
-            final DroolsSubmittedForm organizationFrustrationForm = ObjectMapperFactory.getObjectMapper().readValue(frustrationEvent.getValue(),
-                    DroolsSubmittedForm.class);
-
-            organizationFrustrationForm.getFormVariables().forEach((element, variableValues) -> {
-                //Correct form name.
-                final String elementCorrected = element.replace(FORM_LABEL, FrustrationOnTeamworkingEventConverter.FORM_TEAM_OUTPUT);
-                aggregateValues(teamSubmittedForm, frustrationFacts, variableValues, elementCorrected);
-            });
-        }
+        return getAggregate(filter, members.stream().map(IAuthenticatedUser::getUsername).toList());
+    }
+
 
+    private void setTeamVariables(DroolsForm droolsForm, TeamDTO team, FrustrationOnTeamworkingAggregate aggregate) {
+        final DroolsSubmittedForm teamSubmittedForm = ((DroolsSubmittedForm) droolsForm.getDroolsSubmittedForm());
+        teamSubmittedForm.setFormVariables(getFormVariables(aggregate, FrustrationOnTeamworkingEventConverter.FORM_TEAM_OUTPUT));
         teamSubmittedForm.setTag(FrustrationOnTeamworkingEventConverter.FORM_TEAM_OUTPUT);
         teamSubmittedForm.setOrganization(team.getOrganization() != null ? team.getOrganization().getName() : null);
     }
 
 
-    private void aggregateValues(DroolsSubmittedForm teamSubmittedForm, List<FactDTO> frustrationFacts, Map<String, Object> variableValues,
-                                 String elementCorrected) {
-        teamSubmittedForm.getFormVariables().computeIfAbsent(elementCorrected, k -> new HashMap<>());
-        variableValues.forEach((variable, value) -> {
-            teamSubmittedForm.getFormVariables().get(elementCorrected).computeIfAbsent(variable, v -> 0);
-            //Increment Value
-            teamSubmittedForm.getFormVariables().get(elementCorrected).put(variable,
-                    Double.parseDouble(teamSubmittedForm.getFormVariables().get(elementCorrected).get(variable).toString())
-                            + (((Double) value) / frustrationFacts.size()));
+    private FrustrationOnTeamworkingAggregate getDegradedAggregate(FrustrationOnTeamworkingAggregate cachedAggregate, String result,
+                                                                   FrustrationOnTeamworkingGuard.UnavailableException e) {
+        if (cachedAggregate == null) {
+            throw e;
+        }
+        //Reconciliation is retried on the next event.
+        FrustrationOnTeamworkingEventsLogger.warning(this.getClass(), "Using cached {} aggregate: {}", result, e.getMessage());
+        metrics.degraded(result);
+        return cachedAggregate;
+    }
+
+
+    private Map<String, Map<String, Object>> getFormVariables(FrustrationOnTeamworkingAggregate aggregate, String outputLabel) {
+        if (publishSpread) {
+            return aggregate.getStatistics(FORM_LABEL, outputLabel);
+        }
+        return aggregate.getAverages(FORM_LABEL, outputLabel);
+    }
+
+
+    private FrustrationOnTeamworkingAggregate getAggregate(Map<SearchParameters, Object> filter, List<String> users) throws JsonProcessingException {
+        final FrustrationOnTeamworkingAggregate aggregate = new FrustrationOnTeamworkingAggregate();
+        //Each page is aggregated and released before requesting the next one.
+        factProvider.get(filter, users, frustrationFacts -> {
+            final long start = System.nanoTime();
+            //Read only the variables and populate the aggregate. Only the latest fact by user is retrieved.
+            aggregate.merge(frustrationOnTeamworkingAggregator.aggregate(frustrationFacts, FactDTO::getCreatedBy, FactDTO::getValue));
+            metrics.stage(FrustrationOnTeamworkingMetrics.AGGREGATION, start);
+            metrics.facts(frustrationFacts.size());
         });
+        return aggregate;
     }
 }
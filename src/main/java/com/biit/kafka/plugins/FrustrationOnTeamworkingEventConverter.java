@@ -36,14 +36,33 @@ import java.util.UUID;
 public class FrustrationOnTeamworkingEventConverter {
 
     private static final String DROOLS_RESULT_EVENT_TYPE = "DroolsResultForm";
+    public static final String DELTA_EVENT_TYPE = "DroolsResultFormDelta";
     public static final String FORM_ORGANIZATION_OUTPUT = "Frustration On Teamworking Organization";
     public static final String FORM_TEAM_OUTPUT = "Frustration On Teamworking Team";
+    public static final String FORM_UNIT_OUTPUT = "Frustration On Teamworking Unit";
 
     @Value("${spring.application.name:#{null}}")
     private String applicationName;
 
     public Event getEvent(DroolsForm droolsForm, String createdBy, UUID sessionId) {
-        final Event event = new Event(droolsForm.getDroolsSubmittedForm());
+        return getEvent(droolsForm.getDroolsSubmittedForm(), droolsForm.getTag(), DROOLS_RESULT_EVENT_TYPE, createdBy, sessionId);
+    }
+
+    /**
+     * Creates an event with only the variables that have changed since the previous result.
+     *
+     * @param delta     the changed variables.
+     * @param tag       the tag of the result.
+     * @param createdBy the user that has submitted the form.
+     * @param sessionId the session of the submitted form.
+     * @return the event.
+     */
+    public Event getEvent(FrustrationOnTeamworkingResultDelta delta, String tag, String createdBy, UUID sessionId) {
+        return getEvent(delta, tag, DELTA_EVENT_TYPE, createdBy, sessionId);
+    }
+
+    private Event getEvent(Object payload, String tag, String factType, String createdBy, UUID sessionId) {
+        final Event event = new Event(payload);
         event.setCreatedBy(createdBy);
         event.setMessageId(UUID.randomUUID());
         event.setSubject(EventSubject.CREATED.toString());
@@ -51,8 +70,8 @@ public class FrustrationOnTeamworkingEventConverter {
         event.setCreatedAt(LocalDateTime.now());
         event.setReplyTo(applicationName);
         event.setSessionId(sessionId);
-        event.setTag(droolsForm.getTag());
-        event.setCustomProperty(EventCustomProperties.FACT_TYPE, DROOLS_RESULT_EVENT_TYPE);
+        event.setTag(tag);
+        event.setCustomProperty(EventCustomProperties.FACT_TYPE, factType);
         event.setCustomProperty(EventCustomProperties.SOURCE_TAG, FORM_ORGANIZATION_OUTPUT);
         return event;
     }
@@ -0,0 +1,97 @@
+package com.biit.kafka.plugins;
+
+/*-
+ * #%L
+ * Frustration on Teamworking Organization Statistics Generator
+ * %%
+ * Copyright (C) 2024 - 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.kafka.events.Event;
+import com.biit.kafka.events.EventDeserializer;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Rejects records using their headers before deserializing the payload. Records without the expected header value are returned as null,
+ * and no {@link Event} is built. If no header is configured, all records are deserialized. Configured as a consumer property:
+ * <pre>
+ * spring.kafka.consumer.value-deserializer=com.biit.kafka.plugins.FrustrationOnTeamworkingEventDeserializer
+ * spring.kafka.consumer.properties.frustration.filter.header=factType
+ * spring.kafka.consumer.properties.frustration.filter.values=DroolsResultForm
+ * </pre>
+ */
+public class FrustrationOnTeamworkingEventDeserializer implements Deserializer<Event> {
+    public static final String FILTER_HEADER_PROPERTY = "frustration.filter.header";
+    public static final String FILTER_VALUES_PROPERTY = "frustration.filter.values";
+
+    private final EventDeserializer eventDeserializer = new EventDeserializer();
+    private String filterHeader;
+    private byte[][] filterValues;
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        eventDeserializer.configure(configs, isKey);
+        final Object header = configs.get(FILTER_HEADER_PROPERTY);
+        final Object values = configs.get(FILTER_VALUES_PROPERTY);
+        if (header != null && !header.toString().isBlank() && values != null) {
+            filterHeader = header.toString().trim();
+            filterValues = Arrays.stream(values.toString().split(",")).map(String::trim)
+                    .map(value -> value.getBytes(StandardCharsets.UTF_8)).toArray(byte[][]::new);
+        }
+    }
+
+    @Override
+    public Event deserialize(String topic, byte[] data) {
+        return eventDeserializer.deserialize(topic, data);
+    }
+
+    @Override
+    public Event deserialize(String topic, Headers headers, byte[] data) {
+        if (filterHeader != null && !accepts(headers)) {
+            return null;
+        }
+        return eventDeserializer.deserialize(topic, headers, data);
+    }
+
+    private boolean accepts(Headers headers) {
+        if (headers == null) {
+            return false;
+        }
+        final Header header = headers.lastHeader(filterHeader);
+        if (header == null || header.value() == null) {
+            return false;
+        }
+        //Compares raw bytes to avoid creating strings.
+        for (byte[] filterValue : filterValues) {
+            if (Arrays.equals(filterValue, header.value())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void close() {
+        eventDeserializer.close();
+    }
+}
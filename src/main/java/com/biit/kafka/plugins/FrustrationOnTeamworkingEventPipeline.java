@@ -0,0 +1,140 @@
+package com.biit.kafka.plugins;
+
+/*-
+ * #%L
+ * Frustration on Teamworking Organization Statistics Generator
+ * %%
+ * Copyright (C) 2024 - 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Moves the processing of the accepted events out of the Kafka listener thread. Events are distributed in lanes by organization: each lane
+ * is a single thread with a bounded queue, so the events of one organization (and its teams) are processed in order, and different
+ * organizations are processed concurrently. When a lane queue is full, the listener thread is blocked until there is space again, slowing
+ * down the consumption. If no threads are configured, events are processed on the listener thread.
+ * Lanes are drained when the application stops, after the Kafka listener containers have been stopped.
+ */
+@Component
+@ConditionalOnExpression("${spring.kafka.enabled:false}")
+public class FrustrationOnTeamworkingEventPipeline implements SmartLifecycle {
+    //Stopped after the Kafka listener containers.
+    private static final int PHASE = Integer.MAX_VALUE - 200;
+
+    private final ThreadPoolExecutor[] lanes;
+    private final long shutdownTimeoutSeconds;
+    private volatile boolean running = false;
+
+    public FrustrationOnTeamworkingEventPipeline(@Value("${spring.kafka.frustration.pipeline.threads:0}") int threads,
+                                                 @Value("${spring.kafka.frustration.pipeline.queue.size:1000}") int queueSize,
+                                                 @Value("${spring.kafka.frustration.pipeline.shutdown.timeout.seconds:30}") long shutdownTimeoutSeconds) {
+        this.shutdownTimeoutSeconds = shutdownTimeoutSeconds;
+        if (threads <= 0) {
+            this.lanes = null;
+            return;
+        }
+        this.lanes = new ThreadPoolExecutor[threads];
+        final AtomicInteger threadNumber = new AtomicInteger();
+        for (int i = 0; i < threads; i++) {
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize),
+                    runnable -> {
+                        final Thread thread = new Thread(runnable, "frustration-pipeline-" + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    (task, executor) -> {
+                        //Backpressure: waits until the lane has space.
+                        if (executor.isShutdown()) {
+                            throw new RejectedExecutionException("Pipeline is stopped.");
+                        }
+                        try {
+                            executor.getQueue().put(task);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new RejectedExecutionException(e);
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Processes an event on the lane of its organization.
+     *
+     * @param organization the organization of the event.
+     * @param task         the processing of the event.
+     */
+    public void submit(String organization, Runnable task) {
+        if (lanes == null) {
+            task.run();
+            return;
+        }
+        lanes[Math.floorMod(Objects.hashCode(organization), lanes.length)].execute(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                FrustrationOnTeamworkingEventsLogger.errorMessage(this.getClass(), e);
+            }
+        });
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (lanes == null) {
+            return;
+        }
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+        try {
+            for (ThreadPoolExecutor lane : lanes) {
+                if (!lane.awaitTermination(shutdownTimeoutSeconds, TimeUnit.SECONDS)) {
+                    FrustrationOnTeamworkingEventsLogger.warning(this.getClass(), "Pipeline stopped with '{}' events pending.", lane.getQueue().size());
+                    lane.shutdownNow();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+}
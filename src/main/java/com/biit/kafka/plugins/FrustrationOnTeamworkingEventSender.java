@@ -22,47 +22,237 @@ package com.biit.kafka.plugins;
  */
 
 import com.biit.drools.form.DroolsForm;
+import com.biit.drools.form.DroolsSubmittedForm;
 import com.biit.kafka.events.Event;
 import com.biit.kafka.events.KafkaEventTemplate;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.stereotype.Component;
 
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Publishes the results. Each result is sent with the organization or team as key, so all results of the same organization or team go to
+ * the same partition in order, and a compacted topic keeps only the latest one. Sending does not wait for the broker: the acknowledgement is
+ * handled asynchronously and a failed result is sent again, unless a newer result with the same key has been sent meanwhile. Optionally, only
+ * the variables that have changed are sent (see {@link FrustrationOnTeamworkingResultDelta}).
+ */
 @Component
 @ConditionalOnExpression("${spring.kafka.enabled:false}")
-public class FrustrationOnTeamworkingEventSender {
+public class FrustrationOnTeamworkingEventSender implements DisposableBean {
+    private static final String DELTA_FORMAT = "delta";
 
     @Value("${spring.kafka.frustration.send.topic:}")
     private String sendTopic;
 
+    @Value("${spring.kafka.frustration.send.retries:3}")
+    private int retries;
+
+    @Value("${spring.kafka.frustration.send.retry.backoff.millis:1000}")
+    private long retryBackoffMillis;
+
     private final KafkaEventTemplate kafkaTemplate;
 
     private final FrustrationOnTeamworkingEventConverter frustrationOnTeamworkingEventConverter;
 
+    private final FrustrationOnTeamworkingMetrics metrics;
+
+    //Latest result sent for each key, until acknowledged.
+    private final Map<String, Event> pendingEvents = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService retryExecutor;
+
+    //Null if the complete form is sent.
+    private final FrustrationOnTeamworkingDeltaTracker deltaTracker;
+
     private FrustrationOnTeamworkingEventSender() {
         this.kafkaTemplate = null;
         this.frustrationOnTeamworkingEventConverter = null;
+        this.metrics = null;
+        this.retryExecutor = null;
+        this.deltaTracker = null;
     }
 
     @Autowired(required = false)
     public FrustrationOnTeamworkingEventSender(KafkaEventTemplate kafkaTemplate,
-                                               FrustrationOnTeamworkingEventConverter frustrationOnTeamworkingEventConverter) {
+                                               FrustrationOnTeamworkingEventConverter frustrationOnTeamworkingEventConverter,
+                                               FrustrationOnTeamworkingMetrics metrics,
+                                               @Value("${spring.kafka.frustration.send.format:form}") String format,
+                                               @Value("${spring.kafka.frustration.send.snapshot.interval:100}") int snapshotInterval) {
         this.kafkaTemplate = kafkaTemplate;
         this.frustrationOnTeamworkingEventConverter = frustrationOnTeamworkingEventConverter;
+        this.metrics = metrics;
+        this.deltaTracker = DELTA_FORMAT.equalsIgnoreCase(format) ? new FrustrationOnTeamworkingDeltaTracker(snapshotInterval) : null;
+        this.retryExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "frustration-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
+    /**
+     * Sends a result with the organization as key.
+     *
+     * @param response     the result.
+     * @param executedBy   the user that has submitted the form.
+     * @param organization the organization.
+     * @param sessionId    the session of the submitted form.
+     * @param unit         the unit (i.e. the team).
+     */
     public void sendResultEvents(DroolsForm response, String executedBy, String organization, UUID sessionId, String unit) {
+        sendResultEvents(FrustrationOnTeamworkingEventController.ORGANIZATION_BATCH_KEY + organization, response, executedBy, organization,
+                sessionId, unit);
+    }
+
+    /**
+     * Sends a result.
+     *
+     * @param key          the key of the record, to keep the results of the same organization or team in order.
+     * @param response     the result.
+     * @param executedBy   the user that has submitted the form.
+     * @param organization the organization.
+     * @param sessionId    the session of the submitted form.
+     * @param unit         the unit (i.e. the team).
+     * @return completed with true when the result is published, or false if it is not sent, replaced by a newer result of the same key or
+     * discarded after all retries.
+     */
+    public CompletableFuture<Boolean> sendResultEvents(String key, DroolsForm response, String executedBy, String organization, UUID sessionId,
+                                                       String unit) {
+        return sendResultEvents(key, deltaTracker != null, response, executedBy, organization, sessionId, unit);
+    }
+
+    /**
+     * Sends a result as a complete form, even if deltas are enabled. Used for keys that only receive a few results, as the periods of a
+     * trend, that would be kept forever by the delta tracker.
+     *
+     * @param key          the key of the record.
+     * @param response     the result.
+     * @param executedBy   the user that has submitted the form.
+     * @param organization the organization.
+     * @param sessionId    the session of the submitted form.
+     * @param unit         the unit (i.e. the team).
+     * @return completed with true when the result is published, or false if it is not sent, replaced by a newer result of the same key or
+     * discarded after all retries.
+     */
+    public CompletableFuture<Boolean> sendCompleteResultEvents(String key, DroolsForm response, String executedBy, String organization,
+                                                               UUID sessionId, String unit) {
+        return sendResultEvents(key, false, response, executedBy, organization, sessionId, unit);
+    }
+
+    private CompletableFuture<Boolean> sendResultEvents(String key, boolean delta, DroolsForm response, String executedBy, String organization, UUID sessionId,
+                                  String unit) {
         if (kafkaTemplate != null && sendTopic != null && !sendTopic.isEmpty() && response != null) {
-            FrustrationOnTeamworkingEventsLogger.debug(this.getClass().getName(), "Preparing for sending events for '{}' ...", response.getName());
-            //Send the complete form as an event.
-            final Event event = frustrationOnTeamworkingEventConverter.getEvent(response, executedBy, sessionId);
+            FrustrationOnTeamworkingEventsLogger.debug(this.getClass(), "Preparing for sending events for '{}' ...", response.getName());
+            final Event event;
+            if (delta) {
+                final FrustrationOnTeamworkingResultDelta resultDelta = deltaTracker.next(key,
+                        ((DroolsSubmittedForm) response.getDroolsSubmittedForm()).getFormVariables());
+                if (resultDelta == null) {
+                    FrustrationOnTeamworkingEventsLogger.debug(this.getClass(), "No changes for '{}'.", key);
+                    return CompletableFuture.completedFuture(false);
+                }
+                event = frustrationOnTeamworkingEventConverter.getEvent(resultDelta, response.getTag(), executedBy, sessionId);
+            } else {
+                //Send the complete form as an event.
+                event = frustrationOnTeamworkingEventConverter.getEvent(response, executedBy, sessionId);
+            }
             event.setOrganization(organization);
             event.setUnit(unit);
-            kafkaTemplate.send(sendTopic, event);
-            FrustrationOnTeamworkingEventsLogger.debug(this.getClass().getName(), "Event with results from '{}' send!", response.getName());
+            pendingEvents.put(key, event);
+            final CompletableFuture<Boolean> sent = new CompletableFuture<>();
+            send(key, event, 0, sent);
+            return sent;
+        }
+        return CompletableFuture.completedFuture(false);
+    }
+
+    private void send(String key, Event event, int attempt, CompletableFuture<Boolean> sent) {
+        final long start = System.nanoTime();
+        final CompletableFuture<?> future;
+        try {
+            future = kafkaTemplate.send(sendTopic, key, event);
+        } catch (Exception e) {
+            failed(key, event, attempt, sent, e);
+            return;
+        }
+        future.whenComplete((result, e) -> {
+            if (e != null) {
+                failed(key, event, attempt, sent, e);
+                return;
+            }
+            pendingEvents.remove(key, event);
+            metrics.stage(FrustrationOnTeamworkingMetrics.SEND, start);
+            metrics.send(FrustrationOnTeamworkingMetrics.SENT);
+            FrustrationOnTeamworkingEventsLogger.debug(this.getClass(), "Event with results for '{}' send!", key);
+            sent.complete(true);
+        });
+    }
+
+    private void failed(String key, Event event, int attempt, CompletableFuture<Boolean> sent, Throwable e) {
+        if (isSuperseded(key, event)) {
+            //The newer result contains this one.
+            sent.complete(false);
+            return;
+        }
+        if (attempt < retries && !retryExecutor.isShutdown()) {
+            FrustrationOnTeamworkingEventsLogger.warning(this.getClass(), "Result for '{}' not sent. Retrying: {}", key, e.getMessage());
+            metrics.send(FrustrationOnTeamworkingMetrics.RETRIED);
+            retryExecutor.schedule(() -> {
+                if (!isSuperseded(key, event)) {
+                    send(key, event, attempt + 1, sent);
+                } else {
+                    sent.complete(false);
+                }
+            }, retryBackoffMillis * (attempt + 1), TimeUnit.MILLISECONDS);
+            return;
+        }
+        pendingEvents.remove(key, event);
+        invalidateDelta(key);
+        metrics.send(FrustrationOnTeamworkingMetrics.FAILED);
+        FrustrationOnTeamworkingEventsLogger.errorMessage(this.getClass(), e);
+        //Not retried anymore. The next result of the key contains this one.
+        sent.complete(false);
+    }
+
+    private boolean isSuperseded(String key, Event event) {
+        if (pendingEvents.get(key) == event) {
+            return false;
+        }
+        //A newer result has been sent.
+        metrics.send(FrustrationOnTeamworkingMetrics.SUPERSEDED);
+        invalidateDelta(key);
+        return true;
+    }
+
+    /**
+     * Sends a snapshot as the next result of each key, if deltas are enabled. The previous results of a key may have been sent by other
+     * instance while its partition was assigned to it, so the consumers cannot apply a delta from this instance.
+     */
+    public void invalidateDeltas() {
+        if (deltaTracker != null) {
+            deltaTracker.invalidateAll();
+        }
+    }
+
+    private void invalidateDelta(String key) {
+        if (deltaTracker != null) {
+            //The changes of the lost delta are sent on the next snapshot.
+            deltaTracker.invalidate(key);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (retryExecutor != null) {
+            retryExecutor.shutdownNow();
         }
     }
 }
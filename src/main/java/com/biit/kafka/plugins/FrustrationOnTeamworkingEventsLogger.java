@@ -26,7 +26,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Defines basic log behavior. Uses log4j.properties.
+ * Defines basic log behavior. Uses log4j.properties. Methods with a fixed number of arguments check the log level before building
+ * anything, so they can be used on the path of each received record without any cost if the level is disabled. Arguments that are
+ * expensive to build must be guarded with {@link #isDebugEnabled()}.
  */
 public class FrustrationOnTeamworkingEventsLogger extends BiitLogger {
 
@@ -48,6 +50,30 @@ public class FrustrationOnTeamworkingEventsLogger extends BiitLogger {
         info(clazz.getName(), messageTemplate, arguments);
     }
 
+    public static void info(Class<?> clazz, String message) {
+        if (LOGGER.isInfoEnabled()) {
+            info(clazz.getName(), message);
+        }
+    }
+
+    public static void info(Class<?> clazz, String messageTemplate, Object argument) {
+        if (LOGGER.isInfoEnabled()) {
+            info(clazz.getName(), messageTemplate, argument);
+        }
+    }
+
+    public static void info(Class<?> clazz, String messageTemplate, Object argument1, Object argument2) {
+        if (LOGGER.isInfoEnabled()) {
+            info(clazz.getName(), messageTemplate, argument1, argument2);
+        }
+    }
+
+    public static void info(Class<?> clazz, String messageTemplate, Object argument1, Object argument2, Object argument3) {
+        if (LOGGER.isInfoEnabled()) {
+            info(clazz.getName(), messageTemplate, argument1, argument2, argument3);
+        }
+    }
+
     /**
      * Shows not critical errors. I.e. Email address not found, permissions not
      * allowed for this user, ...
@@ -80,6 +106,30 @@ public class FrustrationOnTeamworkingEventsLogger extends BiitLogger {
         debug(clazz.getName(), messageTemplate, arguments);
     }
 
+    public static void debug(Class<?> clazz, String message) {
+        if (LOGGER.isDebugEnabled()) {
+            debug(clazz.getName(), message);
+        }
+    }
+
+    public static void debug(Class<?> clazz, String messageTemplate, Object argument) {
+        if (LOGGER.isDebugEnabled()) {
+            debug(clazz.getName(), messageTemplate, argument);
+        }
+    }
+
+    public static void debug(Class<?> clazz, String messageTemplate, Object argument1, Object argument2) {
+        if (LOGGER.isDebugEnabled()) {
+            debug(clazz.getName(), messageTemplate, argument1, argument2);
+        }
+    }
+
+    public static void debug(Class<?> clazz, String messageTemplate, Object argument1, Object argument2, Object argument3) {
+        if (LOGGER.isDebugEnabled()) {
+            debug(clazz.getName(), messageTemplate, argument1, argument2, argument3);
+        }
+    }
+
     /**
      * To log any not expected error that can cause application malfunction.
      *
@@ -118,4 +168,8 @@ public class FrustrationOnTeamworkingEventsLogger extends BiitLogger {
     public static boolean isDebugEnabled() {
         return LOGGER.isDebugEnabled();
     }
+
+    public static boolean isInfoEnabled() {
+        return LOGGER.isInfoEnabled();
+    }
 }
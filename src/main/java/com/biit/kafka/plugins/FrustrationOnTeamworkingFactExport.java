@@ -0,0 +1,424 @@
+package com.biit.kafka.plugins;
+
+/*-
+ * #%L
+ * Frustration on Teamworking Organization Statistics Generator
+ * %%
+ * Copyright (C) 2024 - 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.kafka.config.ObjectMapperFactory;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Reads file exports as json lines, one object by line. The file is memory mapped and split on chunks ending on a line break, that are read
+ * in parallel. Only the fields needed are read with a streaming parser, and the submitted forms are kept as text until aggregated.
+ * <ul>
+ * <li>Facts, as exported from the Fact Manager: only the latest submission of each user by organization is kept. Facts of other forms,
+ * applications or groups are skipped using their 'elementName', 'factType', 'application' and 'group' fields.</li>
+ * <li>Members of the teams: '{"organization": "...", "teamId": "...", "team": "...", "username": "..."}' with a line by member.</li>
+ * </ul>
+ */
+public class FrustrationOnTeamworkingFactExport {
+    private static final String ORGANIZATION_FIELD = "organization";
+    private static final String CREATED_BY_FIELD = "createdBy";
+    private static final String CREATED_AT_FIELD = "createdAt";
+    private static final String ELEMENT_NAME_FIELD = "elementName";
+    private static final String FACT_TYPE_FIELD = "factType";
+    private static final String APPLICATION_FIELD = "application";
+    private static final String GROUP_FIELD = "group";
+    private static final String VALUE_FIELD = "value";
+    private static final String TEAM_ID_FIELD = "teamId";
+    private static final String TEAM_FIELD = "team";
+    private static final String USERNAME_FIELD = "username";
+    private static final char KEY_SEPARATOR = '\u001F';
+    //A mapped buffer cannot be larger than 2GB, and the chunk is extended until the end of its last line.
+    private static final long MAX_CHUNK_SIZE = Integer.MAX_VALUE / 2;
+    private static final int INITIAL_LINE_SIZE = 8192;
+
+    private final String formLabel;
+    private final String factType;
+    private final String application;
+    private final String group;
+    private final int parallelism;
+    private final JsonFactory jsonFactory = ObjectMapperFactory.getObjectMapper().getFactory();
+
+    /**
+     * Latest submission of a user.
+     */
+    public static final class Submission {
+        private final String user;
+        private final LocalDateTime createdAt;
+        //Position on the file, to keep the latest line if submitted at the same time.
+        private final long position;
+        private final String value;
+
+        private Submission(String user, LocalDateTime createdAt, long position, String value) {
+            this.user = user;
+            this.createdAt = createdAt;
+            this.position = position;
+            this.value = value;
+        }
+
+        public String getUser() {
+            return user;
+        }
+
+        public LocalDateTime getCreatedAt() {
+            return createdAt;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public boolean isAfter(Submission submission) {
+            if (!Objects.equals(createdAt, submission.createdAt)) {
+                return submission.createdAt == null || (createdAt != null && createdAt.isAfter(submission.createdAt));
+            }
+            return position > submission.position;
+        }
+    }
+
+    /**
+     * Team with its members.
+     */
+    public static final class Team {
+        private final String organization;
+        private final String id;
+        private final String name;
+        private final Set<String> members = new HashSet<>();
+
+        private Team(String organization, String id, String name) {
+            this.organization = organization;
+            this.id = id;
+            this.name = name;
+        }
+
+        public String getOrganization() {
+            return organization;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Set<String> getMembers() {
+            return members;
+        }
+    }
+
+    @FunctionalInterface
+    private interface LineReader<T> {
+        void read(T partial, JsonParser parser, long position) throws IOException;
+    }
+
+    /**
+     * @param formLabel   the label of the submitted forms.
+     * @param factType    the type of the facts.
+     * @param application the application that has created the facts, or null for any application.
+     * @param group       the group of the facts (i.e. the topic of the events), or null for any group.
+     * @param parallelism the number of chunks read at the same time.
+     */
+    public FrustrationOnTeamworkingFactExport(String formLabel, String factType, String application, String group, int parallelism) {
+        this.formLabel = formLabel;
+        this.factType = factType;
+        this.application = application;
+        this.group = group;
+        this.parallelism = Math.max(parallelism, 1);
+    }
+
+    /**
+     * Reads the latest submission of each user.
+     *
+     * @param file the facts export.
+     * @return the submissions by organization, in file order.
+     * @throws IOException if the file cannot be read.
+     */
+    public Map<String, List<Submission>> readSubmissions(Path file) throws IOException {
+        //Organization --> user --> submission.
+        final Map<String, Map<String, Submission>> latest = new HashMap<>();
+        for (Map<String, Map<String, Submission>> partial : read(file, HashMap::new, this::readSubmission)) {
+            partial.forEach((organization, submissions) -> {
+                final Map<String, Submission> organizationSubmissions = latest.computeIfAbsent(organization, k -> new HashMap<>());
+                submissions.forEach((user, submission) -> organizationSubmissions.merge(user, submission, FrustrationOnTeamworkingFactExport::getLatest));
+            });
+        }
+        final Map<String, List<Submission>> submissionsByOrganization = new HashMap<>();
+        latest.forEach((organization, submissions) -> {
+            final List<Submission> organizationSubmissions = new ArrayList<>(submissions.values());
+            organizationSubmissions.sort(Comparator.comparingLong(submission -> submission.position));
+            submissionsByOrganization.put(organization, organizationSubmissions);
+        });
+        return submissionsByOrganization;
+    }
+
+    /**
+     * Reads the members of each team.
+     *
+     * @param file the members export.
+     * @return the teams.
+     * @throws IOException if the file cannot be read.
+     */
+    public Collection<Team> readTeams(Path file) throws IOException {
+        final Map<String, Team> teams = new HashMap<>();
+        for (Map<String, Team> partial : read(file, HashMap::new, this::readMember)) {
+            partial.forEach((key, team) -> teams.merge(key, team, (team1, team2) -> {
+                team1.members.addAll(team2.members);
+                return team1;
+            }));
+        }
+        return teams.values();
+    }
+
+    static Submission getLatest(Submission submission1, Submission submission2) {
+        return submission2.isAfter(submission1) ? submission2 : submission1;
+    }
+
+    private void readSubmission(Map<String, Map<String, Submission>> submissions, JsonParser parser, long position) throws IOException {
+        String organization = null;
+        String createdBy = null;
+        LocalDateTime createdAt = null;
+        String value = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.currentName();
+            final JsonToken token = parser.nextToken();
+            switch (field) {
+                case ORGANIZATION_FIELD -> organization = getText(parser, token);
+                case CREATED_BY_FIELD -> createdBy = getText(parser, token);
+                case CREATED_AT_FIELD -> createdAt = getDateTime(parser, token);
+                case VALUE_FIELD -> value = getText(parser, token);
+                case ELEMENT_NAME_FIELD -> {
+                    if (isFiltered(parser, token, formLabel)) {
+                        return;
+                    }
+                }
+                case FACT_TYPE_FIELD -> {
+                    if (isFiltered(parser, token, factType)) {
+                        return;
+                    }
+                }
+                case APPLICATION_FIELD -> {
+                    if (isFiltered(parser, token, application)) {
+                        return;
+                    }
+                }
+                case GROUP_FIELD -> {
+                    if (isFiltered(parser, token, group)) {
+                        return;
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        if (organization == null || createdBy == null || value == null) {
+            return;
+        }
+        submissions.computeIfAbsent(organization, k -> new HashMap<>())
+                .merge(createdBy, new Submission(createdBy, createdAt, position, value), FrustrationOnTeamworkingFactExport::getLatest);
+    }
+
+    private void readMember(Map<String, Team> teams, JsonParser parser, long position) throws IOException {
+        String organization = null;
+        String teamId = null;
+        String teamName = null;
+        String username = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.currentName();
+            final JsonToken token = parser.nextToken();
+            switch (field) {
+                case ORGANIZATION_FIELD -> organization = getText(parser, token);
+                case TEAM_ID_FIELD -> teamId = getText(parser, token);
+                case TEAM_FIELD -> teamName = getText(parser, token);
+                case USERNAME_FIELD -> username = getText(parser, token);
+                default -> parser.skipChildren();
+            }
+        }
+        if (organization == null || username == null || (teamId == null && teamName == null)) {
+            return;
+        }
+        final Team team = new Team(organization, teamId != null ? teamId : teamName, teamName != null ? teamName : teamId);
+        teams.computeIfAbsent(organization + KEY_SEPARATOR + team.id, k -> team).members.add(username);
+    }
+
+    private static boolean isFiltered(JsonParser parser, JsonToken token, String expected) throws IOException {
+        return expected != null && token == JsonToken.VALUE_STRING && !Objects.equals(parser.getText(), expected);
+    }
+
+    private static String getText(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        return parser.getText();
+    }
+
+    private static LocalDateTime getDateTime(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_STRING) {
+            final String text = parser.getText();
+            try {
+                return LocalDateTime.parse(text);
+            } catch (DateTimeParseException e) {
+                try {
+                    return OffsetDateTime.parse(text).toLocalDateTime();
+                } catch (DateTimeParseException e2) {
+                    return null;
+                }
+            }
+        }
+        if (token == JsonToken.START_ARRAY) {
+            //Written as [year, month, day, hour, minute, second, nanos].
+            final int[] fields = new int[7];
+            int i = 0;
+            while (parser.nextToken() == JsonToken.VALUE_NUMBER_INT) {
+                if (i < fields.length) {
+                    fields[i++] = parser.getIntValue();
+                }
+            }
+            return i >= 3 ? LocalDateTime.of(fields[0], fields[1], fields[2], fields[3], fields[4], fields[5], fields[6]) : null;
+        }
+        parser.skipChildren();
+        return null;
+    }
+
+    private <T> List<T> read(Path file, Supplier<T> partialSupplier, LineReader<T> lineReader) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            final long chunkSize = Math.max(Math.min((size + parallelism - 1) / parallelism, MAX_CHUNK_SIZE), 1);
+            final List<long[]> chunks = new ArrayList<>();
+            long start = 0;
+            while (start < size) {
+                final long end = getLineStart(channel, Math.min(start + chunkSize, size), size);
+                chunks.add(new long[]{start, end});
+                start = end;
+            }
+            if (chunks.size() <= 1) {
+                final List<T> partials = new ArrayList<>();
+                for (long[] chunk : chunks) {
+                    partials.add(readChunk(channel, chunk[0], chunk[1], partialSupplier.get(), lineReader));
+                }
+                return partials;
+            }
+            final ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, chunks.size()));
+            try {
+                final List<Future<T>> futures = new ArrayList<>();
+                for (long[] chunk : chunks) {
+                    futures.add(pool.submit(() -> readChunk(channel, chunk[0], chunk[1], partialSupplier.get(), lineReader)));
+                }
+                final List<T> partials = new ArrayList<>();
+                for (Future<T> future : futures) {
+                    partials.add(future.get());
+                }
+                return partials;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException(e.getCause());
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    private static long getLineStart(FileChannel channel, long position, long size) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(INITIAL_LINE_SIZE);
+        long current = position;
+        while (current < size) {
+            buffer.clear();
+            final int read = channel.read(buffer, current);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return current + i + 1;
+                }
+            }
+            current += read;
+        }
+        return size;
+    }
+
+    private <T> T readChunk(FileChannel channel, long start, long end, T partial, LineReader<T> lineReader) throws IOException {
+        final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        byte[] line = new byte[INITIAL_LINE_SIZE];
+        int lineStart = 0;
+        final int limit = buffer.limit();
+        for (int i = 0; i <= limit; i++) {
+            if (i < limit && buffer.get(i) != '\n') {
+                continue;
+            }
+            int length = i - lineStart;
+            if (length > 0 && buffer.get(lineStart + length - 1) == '\r') {
+                length--;
+            }
+            if (length > 0) {
+                if (length > line.length) {
+                    line = new byte[Math.max(length, line.length * 2)];
+                }
+                buffer.get(lineStart, line, 0, length);
+                try (JsonParser parser = jsonFactory.createParser(line, 0, length)) {
+                    if (parser.nextToken() == JsonToken.START_OBJECT) {
+                        lineReader.read(partial, parser, start + lineStart);
+                    }
+                } catch (JsonProcessingException e) {
+                    FrustrationOnTeamworkingEventsLogger.warning(this.getClass(), "Invalid line at position '{}' ignored: {}", start + lineStart,
+                            e.getMessage());
+                }
+            }
+            lineStart = i + 1;
+        }
+        return partial;
+    }
+}
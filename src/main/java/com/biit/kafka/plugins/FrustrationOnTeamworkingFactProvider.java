@@ -0,0 +1,103 @@
+package com.biit.kafka.plugins;
+
+/*-
+ * #%L
+ * Frustration on Teamworking Organization Statistics Generator
+ * %%
+ * Copyright (C) 2024 - 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.factmanager.client.SearchParameters;
+import com.biit.factmanager.client.provider.ClientFactProvider;
+import com.biit.factmanager.dto.FactDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Retrieves facts from the Fact Manager by pages. When the users are known (i.e. the members of a team), the users are split in groups and
+ * one request is done for each group, so only one page of facts is in memory at the same time. Each page can be released by the consumer
+ * before the next one is requested. Requests are protected by {@link FrustrationOnTeamworkingGuards}.
+ */
+@Component
+@ConditionalOnExpression("${spring.kafka.enabled:false}")
+public class FrustrationOnTeamworkingFactProvider {
+
+    /**
+     * Processes a page of facts.
+     */
+    @FunctionalInterface
+    public interface FactPageConsumer {
+        void accept(List<FactDTO> facts) throws JsonProcessingException;
+    }
+
+    private final ClientFactProvider clientFactProvider;
+    private final FrustrationOnTeamworkingMetrics metrics;
+    private final FrustrationOnTeamworkingGuards guards;
+    private final int usersByPage;
+
+    @Autowired
+    public FrustrationOnTeamworkingFactProvider(ClientFactProvider clientFactProvider, FrustrationOnTeamworkingMetrics metrics,
+                                                FrustrationOnTeamworkingGuards guards,
+                                                @Value("${spring.kafka.frustration.facts.page.users:200}") int usersByPage) {
+        this.clientFactProvider = clientFactProvider;
+        this.metrics = metrics;
+        this.guards = guards;
+        this.usersByPage = usersByPage;
+    }
+
+    /**
+     * Retrieves all facts that match the filter.
+     *
+     * @param filter   the search parameters.
+     * @param users    the users whose facts are retrieved, or null for all the users that match the filter.
+     * @param consumer processes each page.
+     * @throws JsonProcessingException if the consumer cannot parse a fact.
+     * @throws FrustrationOnTeamworkingGuard.UnavailableException if the Fact Manager is not available.
+     */
+    public void get(Map<SearchParameters, Object> filter, List<String> users, FactPageConsumer consumer) throws JsonProcessingException {
+        if (users != null && users.isEmpty()) {
+            //No facts, and an empty filter would return all users.
+            return;
+        }
+        if (users == null || usersByPage <= 0 || users.size() <= usersByPage) {
+            if (users != null) {
+                filter.put(SearchParameters.CREATED_BY, users);
+            }
+            consumer.accept(fetch(filter));
+            return;
+        }
+        for (int start = 0; start < users.size(); start += usersByPage) {
+            final Map<SearchParameters, Object> pageFilter = new HashMap<>(filter);
+            pageFilter.put(SearchParameters.CREATED_BY, users.subList(start, Math.min(start + usersByPage, users.size())));
+            consumer.accept(fetch(pageFilter));
+        }
+    }
+
+    private List<FactDTO> fetch(Map<SearchParameters, Object> filter) {
+        final long start = System.nanoTime();
+        final List<FactDTO> facts = guards.getFactManager().call(() -> clientFactProvider.get(filter));
+        metrics.stage(FrustrationOnTeamworkingMetrics.FACTS_FETCH, start);
+        return facts;
+    }
+}
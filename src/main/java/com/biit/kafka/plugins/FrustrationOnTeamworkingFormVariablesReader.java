@@ -0,0 +1,109 @@
+package com.biit.kafka.plugins;
+
+/*-
+ * #%L
+ * Frustration on Teamworking Organization Statistics Generator
+ * %%
+ * Copyright (C) 2024 - 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.kafka.config.ObjectMapperFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Reads the form variables from the json of a submitted form without deserializing the whole form. The parser jumps directly to the
+ * 'formVariables' field, skipping the questions and answers, and each numeric value is sent to a consumer without building any map.
+ */
+public final class FrustrationOnTeamworkingFormVariablesReader {
+    private static final String FORM_VARIABLES_FIELD = "formVariables";
+
+    /**
+     * Receives each variable found.
+     */
+    @FunctionalInterface
+    public interface VariableConsumer {
+        void accept(String element, String variable, double value);
+    }
+
+    private FrustrationOnTeamworkingFormVariablesReader() {
+
+    }
+
+    /**
+     * Reads the variables of a submitted form.
+     *
+     * @param formJson the submitted form as json.
+     * @param consumer receives each numeric variable.
+     * @return false if the form has no variables.
+     * @throws JsonProcessingException if the json is invalid.
+     */
+    public static boolean read(String formJson, VariableConsumer consumer) throws JsonProcessingException {
+        if (formJson == null) {
+            return false;
+        }
+        try (JsonParser parser = ObjectMapperFactory.getObjectMapper().getFactory().createParser(formJson)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return false;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String field = parser.currentName();
+                final JsonToken value = parser.nextToken();
+                if (FORM_VARIABLES_FIELD.equals(field)) {
+                    if (value == JsonToken.VALUE_STRING) {
+                        //Variables are stored as an embedded json.
+                        try (JsonParser variablesParser = ObjectMapperFactory.getObjectMapper().getFactory().createParser(parser.getText())) {
+                            return variablesParser.nextToken() == JsonToken.START_OBJECT && readVariables(variablesParser, consumer);
+                        }
+                    }
+                    return value == JsonToken.START_OBJECT && readVariables(parser, consumer);
+                }
+                parser.skipChildren();
+            }
+            return false;
+        } catch (JsonProcessingException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static boolean readVariables(JsonParser parser, VariableConsumer consumer) throws IOException {
+        //element --> {variable --> value}
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String element = parser.currentName();
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String variable = parser.currentName();
+                final JsonToken value = parser.nextToken();
+                if (value == JsonToken.VALUE_NUMBER_FLOAT || value == JsonToken.VALUE_NUMBER_INT) {
+                    consumer.accept(element, variable, parser.getDoubleValue());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return true;
+    }
+}
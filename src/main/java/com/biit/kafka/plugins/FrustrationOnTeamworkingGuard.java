@@ -0,0 +1,235 @@
+package com.biit.kafka.plugins;
+
+/*-
+ * #%L
+ * Frustration on Teamworking Organization Statistics Generator
+ * %%
+ * Copyright (C) 2024 - 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.rest.exceptions.NotFoundException;
+import com.biit.usermanager.security.exceptions.UserDoesNotExistException;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Protects the application from a slow or failing dependency. Each call has a timeout, and the number of concurrent calls is limited
+ * (bulkhead), so a slow dependency cannot block all the threads. After several consecutive failures, the circuit is opened and the calls
+ * fail immediately during a period. Then, one trial call is allowed to check if the dependency has recovered. Calls that time out are
+ * still counted on the bulkhead until they actually finish. Only timeouts, transport and server errors are failures of the dependency:
+ * business errors (i.e. not found) are answers of an available dependency, and calls rejected by the bulkhead have not reached it.
+ */
+public class FrustrationOnTeamworkingGuard {
+    private static final int CLOSED = 0;
+    private static final int HALF_OPEN = 1;
+    private static final int OPEN = 2;
+
+    /**
+     * The call has not been done, or has not finished in time.
+     */
+    public static class UnavailableException extends RuntimeException {
+        public UnavailableException(String message) {
+            super(message);
+        }
+
+        public UnavailableException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    private final String dependency;
+    private final long timeoutMillis;
+    private final int failureThreshold;
+    private final long openMillis;
+    private final Semaphore bulkhead;
+    private final ExecutorService executor;
+    private final FrustrationOnTeamworkingMetrics metrics;
+
+    private int state = CLOSED;
+    private int failures = 0;
+    private long openUntil = 0;
+
+    public FrustrationOnTeamworkingGuard(String dependency, long timeoutMillis, int concurrency, int failureThreshold, long openMillis,
+                                         FrustrationOnTeamworkingMetrics metrics) {
+        this.dependency = dependency;
+        this.timeoutMillis = timeoutMillis;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        this.bulkhead = concurrency > 0 ? new Semaphore(concurrency) : null;
+        //Threads are limited by the bulkhead.
+        this.executor = timeoutMillis > 0 ? Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable, "frustration-" + dependency);
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+        this.metrics = metrics;
+        metrics.circuit(dependency, this, FrustrationOnTeamworkingGuard::getState);
+    }
+
+    /**
+     * Calls the dependency.
+     *
+     * @param call the call.
+     * @param <T>  the type of the result.
+     * @return the result of the call.
+     * @throws UnavailableException if the circuit is open, the bulkhead is full or the call has timed out.
+     */
+    public <T> T call(Supplier<T> call) {
+        if (!allow()) {
+            metrics.dependency(dependency, FrustrationOnTeamworkingMetrics.OPEN);
+            throw new UnavailableException("Circuit of '" + dependency + "' is open.");
+        }
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        if (!acquire()) {
+            metrics.dependency(dependency, FrustrationOnTeamworkingMetrics.REJECTED);
+            throw new UnavailableException("Too many concurrent calls to '" + dependency + "'.");
+        }
+        try {
+            final T result = executor != null ? callWithTimeout(call, deadline) : callAndRelease(call);
+            succeeded();
+            metrics.dependency(dependency, FrustrationOnTeamworkingMetrics.SUCCESS);
+            return result;
+        } catch (UnavailableException e) {
+            failed();
+            metrics.dependency(dependency, FrustrationOnTeamworkingMetrics.TIMEOUT);
+            throw e;
+        } catch (RuntimeException e) {
+            if (isBusinessError(e)) {
+                succeeded();
+                metrics.dependency(dependency, FrustrationOnTeamworkingMetrics.NOT_FOUND);
+            } else {
+                failed();
+                metrics.dependency(dependency, FrustrationOnTeamworkingMetrics.FAILURE);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * The dependency has answered, but the requested element does not exist.
+     *
+     * @param e the error of the call.
+     * @return true if it is not a failure of the dependency.
+     */
+    private static boolean isBusinessError(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof NotFoundException || cause instanceof UserDoesNotExistException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean acquire() {
+        if (bulkhead == null) {
+            return true;
+        }
+        try {
+            return timeoutMillis > 0 ? bulkhead.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS) : bulkhead.tryAcquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private <T> T callAndRelease(Supplier<T> call) {
+        try {
+            return call.get();
+        } finally {
+            if (bulkhead != null) {
+                bulkhead.release();
+            }
+        }
+    }
+
+    private <T> T callWithTimeout(Supplier<T> call, long deadline) {
+        final Future<T> future;
+        try {
+            future = executor.submit(() -> callAndRelease(call));
+        } catch (RuntimeException e) {
+            if (bulkhead != null) {
+                bulkhead.release();
+            }
+            throw e;
+        }
+        try {
+            return future.get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new UnavailableException("Call to '" + dependency + "' has timed out.", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new UnavailableException("Call to '" + dependency + "' interrupted.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private synchronized boolean allow() {
+        if (state == OPEN) {
+            if (System.currentTimeMillis() < openUntil) {
+                return false;
+            }
+            //Trial call.
+            state = HALF_OPEN;
+            return true;
+        }
+        return state == CLOSED;
+    }
+
+    private synchronized void succeeded() {
+        failures = 0;
+        state = CLOSED;
+    }
+
+    private synchronized void failed() {
+        failures++;
+        if (state == HALF_OPEN || (failureThreshold > 0 && failures >= failureThreshold)) {
+            if (state != OPEN) {
+                FrustrationOnTeamworkingEventsLogger.warning(this.getClass(), "Circuit of '{}' opened after '{}' failures.", dependency, failures);
+            }
+            state = OPEN;
+            openUntil = System.currentTimeMillis() + openMillis;
+        }
+    }
+
+    /**
+     * State of the circuit, as exposed on the metrics.
+     *
+     * @return 0 if closed, 1 if half-open or 2 if open.
+     */
+    public synchronized int getState() {
+        return state;
+    }
+
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
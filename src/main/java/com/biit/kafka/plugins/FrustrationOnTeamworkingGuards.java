@@ -0,0 +1,68 @@
+package com.biit.kafka.plugins;
+
+/*-
+ * #%L
+ * Frustration on Teamworking Organization Statistics Generator
+ * %%
+ * Copyright (C) 2024 - 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+/**
+ * Timeout, bulkhead and circuit breaker of the Fact Manager and the User Manager. See {@link FrustrationOnTeamworkingGuard}.
+ */
+@Component
+@ConditionalOnExpression("${spring.kafka.enabled:false}")
+public class FrustrationOnTeamworkingGuards implements DisposableBean {
+    private static final long MILLIS_BY_SECOND = 1000L;
+
+    private final FrustrationOnTeamworkingGuard factManager;
+    private final FrustrationOnTeamworkingGuard userManager;
+
+    public FrustrationOnTeamworkingGuards(FrustrationOnTeamworkingMetrics metrics,
+                                          @Value("${spring.kafka.frustration.factmanager.timeout.millis:30000}") long factManagerTimeoutMillis,
+                                          @Value("${spring.kafka.frustration.factmanager.concurrency:4}") int factManagerConcurrency,
+                                          @Value("${spring.kafka.frustration.factmanager.circuit.failures:5}") int factManagerFailures,
+                                          @Value("${spring.kafka.frustration.factmanager.circuit.open.seconds:30}") long factManagerOpenSeconds,
+                                          @Value("${spring.kafka.frustration.usermanager.timeout.millis:5000}") long userManagerTimeoutMillis,
+                                          @Value("${spring.kafka.frustration.usermanager.concurrency:8}") int userManagerConcurrency,
+                                          @Value("${spring.kafka.frustration.usermanager.circuit.failures:5}") int userManagerFailures,
+                                          @Value("${spring.kafka.frustration.usermanager.circuit.open.seconds:30}") long userManagerOpenSeconds) {
+        this.factManager = new FrustrationOnTeamworkingGuard(FrustrationOnTeamworkingMetrics.FACT_MANAGER, factManagerTimeoutMillis,
+                factManagerConcurrency, factManagerFailures, factManagerOpenSeconds * MILLIS_BY_SECOND, metrics);
+        this.userManager = new FrustrationOnTeamworkingGuard(FrustrationOnTeamworkingMetrics.USER_MANAGER, userManagerTimeoutMillis,
+                userManagerConcurrency, userManagerFailures, userManagerOpenSeconds * MILLIS_BY_SECOND, metrics);
+    }
+
+    public FrustrationOnTeamworkingGuard getFactManager() {
+        return factManager;
+    }
+
+    public FrustrationOnTeamworkingGuard getUserManager() {
+        return userManager;
+    }
+
+    @Override
+    public void destroy() {
+        factManager.shutdown();
+        userManager.shutdown();
+    }
+}
@@ -0,0 +1,90 @@
+package com.biit.kafka.plugins;
+
+/*-
+ * #%L
+ * Frustration on Teamworking Organization Statistics Generator
+ * %%
+ * Copyright (C) 2024 - 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.server.security.model.IAuthenticatedUser;
+import com.biit.usermanager.client.providers.TeamManagerClient;
+import com.biit.usermanager.client.providers.UserManagerClient;
+import com.biit.usermanager.dto.TeamDTO;
+import com.biit.usermanager.dto.UserDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Caches the users and team memberships retrieved from the User Manager. Team membership changes rarely, and these lookups are needed on
+ * every received event. The cache is invalidated when a membership event is received. While the User Manager is unavailable, expired
+ * values are used.
+ */
+@Component
+@ConditionalOnExpression("${spring.kafka.enabled:false}")
+public class FrustrationOnTeamworkingMembershipCache {
+    private static final long MILLIS_BY_SECOND = 1000L;
+
+    private final UserManagerClient userManagerClient;
+    private final TeamManagerClient teamManagerClient;
+    private final FrustrationOnTeamworkingGuards guards;
+
+    private final FrustrationOnTeamworkingCache<String, IAuthenticatedUser> users;
+    private final FrustrationOnTeamworkingCache<UUID, Collection<TeamDTO>> teamsByUser;
+    private final FrustrationOnTeamworkingCache<Object, Collection<UserDTO>> membersByTeam;
+
+    @Autowired
+    public FrustrationOnTeamworkingMembershipCache(UserManagerClient userManagerClient, TeamManagerClient teamManagerClient,
+                                                   FrustrationOnTeamworkingGuards guards,
+                                                   @Value("${spring.kafka.frustration.cache.size:10000}") int cacheSize,
+                                                   @Value("${spring.kafka.frustration.cache.ttl.seconds:300}") long timeToLiveSeconds) {
+        this.userManagerClient = userManagerClient;
+        this.teamManagerClient = teamManagerClient;
+        this.guards = guards;
+        this.users = new FrustrationOnTeamworkingCache<>(cacheSize, timeToLiveSeconds * MILLIS_BY_SECOND);
+        this.teamsByUser = new FrustrationOnTeamworkingCache<>(cacheSize, timeToLiveSeconds * MILLIS_BY_SECOND);
+        this.membersByTeam = new FrustrationOnTeamworkingCache<>(cacheSize, timeToLiveSeconds * MILLIS_BY_SECOND);
+    }
+
+    public Optional<IAuthenticatedUser> findUser(String username) {
+        return Optional.ofNullable(users.get(username, key -> guards.getUserManager().call(() -> userManagerClient.findByUsername(key).orElse(null))));
+    }
+
+    public Collection<TeamDTO> findTeams(UUID user) {
+        return teamsByUser.get(user, key -> guards.getUserManager().call(() -> teamManagerClient.findByUser(key)));
+    }
+
+    public Collection<UserDTO> findMembers(TeamDTO team) {
+        return membersByTeam.get(team.getId(), key -> guards.getUserManager().call(() -> userManagerClient.findByTeam(team.getId())));
+    }
+
+    /**
+     * Removes all team memberships. Users are also removed, as they may have been deleted.
+     */
+    public void invalidate() {
+        FrustrationOnTeamworkingEventsLogger.debug(this.getClass(), "Membership cache invalidated.");
+        users.invalidateAll();
+        teamsByUser.invalidateAll();
+        membersByTeam.invalidateAll();
+    }
+}
@@ -0,0 +1,213 @@
+package com.biit.kafka.plugins;
+
+/*-
+ * #%L
+ * Frustration on Teamworking Organization Statistics Generator
+ * %%
+ * Copyright (C) 2024 - 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Meters of each processing stage. If the application has no {@link MeterRegistry} (i.e. without actuator), the global registry is used,
+ * that discards all values unless other registry is added to it. Meters are created once by tag value, so recording a value does not
+ * allocate anything.
+ */
+@Component
+@ConditionalOnExpression("${spring.kafka.enabled:false}")
+public class FrustrationOnTeamworkingMetrics {
+    public static final String EVENTS = "frustration.events";
+    public static final String STAGES = "frustration.stages";
+    public static final String FACTS = "frustration.facts";
+    public static final String LAG = "frustration.lag";
+    public static final String SENDS = "frustration.sends";
+    public static final String DEPENDENCIES = "frustration.dependencies";
+    public static final String CIRCUITS = "frustration.circuits";
+    public static final String DEGRADED = "frustration.degraded";
+
+    public static final String ACCEPTED = "accepted";
+    public static final String REJECTED_TOPIC = "topic";
+    public static final String REJECTED_EMPTY = "empty";
+    public static final String REJECTED_FACT_TYPE = "factType";
+    public static final String REJECTED_TAG = "tag";
+    public static final String REJECTED_DUPLICATE = "duplicate";
+    public static final String REJECTED_STALE = "stale";
+    public static final String MEMBERSHIP = "membership";
+    public static final String FORWARDED = "forwarded";
+
+    public static final String USER_LOOKUP = "userLookup";
+    public static final String TEAM_LOOKUP = "teamLookup";
+    public static final String FACTS_FETCH = "factsFetch";
+    public static final String AGGREGATION = "aggregation";
+    public static final String SEND = "send";
+
+    public static final String SENT = "sent";
+    public static final String RETRIED = "retried";
+    public static final String SUPERSEDED = "superseded";
+    public static final String FAILED = "failed";
+
+    public static final String FACT_MANAGER = "factManager";
+    public static final String USER_MANAGER = "userManager";
+
+    public static final String SUCCESS = "success";
+    public static final String FAILURE = "failure";
+    public static final String NOT_FOUND = "notFound";
+    public static final String TIMEOUT = "timeout";
+    public static final String REJECTED = "rejected";
+    public static final String OPEN = "open";
+
+    public static final String ORGANIZATION = "organization";
+    public static final String TEAM = "team";
+    public static final String UNIT = "unit";
+
+    private static final int SIZE_BUCKET_BASE = 10;
+    private static final int SIZE_BUCKETS = 5;
+    private static final String LARGEST_SIZE_BUCKET = "more";
+
+    private final MeterRegistry registry;
+    private final Map<String, Counter> events = new ConcurrentHashMap<>();
+    private final Map<String, Timer> stages = new ConcurrentHashMap<>();
+    private final Map<String, Timer> lags = new ConcurrentHashMap<>();
+    private final Map<String, Counter> sends = new ConcurrentHashMap<>();
+    private final Map<String, Counter> dependencies = new ConcurrentHashMap<>();
+    private final Map<String, Counter> degraded = new ConcurrentHashMap<>();
+    private final DistributionSummary facts;
+
+    private FrustrationOnTeamworkingMetrics() {
+        this(null);
+    }
+
+    @Autowired(required = false)
+    public FrustrationOnTeamworkingMetrics(MeterRegistry registry) {
+        this.registry = registry != null ? registry : Metrics.globalRegistry;
+        this.facts = DistributionSummary.builder(FACTS).description("Facts retrieved from the Fact Manager by request")
+                .register(this.registry);
+    }
+
+    /**
+     * Counts a received event by the result of the filter.
+     *
+     * @param result {@link #ACCEPTED}, {@link #MEMBERSHIP}, {@link #FORWARDED} or the reason why the event has been rejected.
+     */
+    public void event(String result) {
+        events.computeIfAbsent(result, k -> Counter.builder(EVENTS).description("Received events by filter result").tag("result", k)
+                .register(registry)).increment();
+    }
+
+    /**
+     * Records the time spent on a stage.
+     *
+     * @param stage      the stage.
+     * @param startNanos the value of {@link System#nanoTime()} when the stage started.
+     */
+    public void stage(String stage, long startNanos) {
+        stages.computeIfAbsent(stage, k -> Timer.builder(STAGES).description("Time spent on each processing stage").tag("stage", k)
+                .register(registry)).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Counts a result by the outcome of its publication.
+     *
+     * @param result {@link #SENT}, {@link #RETRIED}, {@link #SUPERSEDED} or {@link #FAILED}.
+     */
+    public void send(String result) {
+        sends.computeIfAbsent(result, k -> Counter.builder(SENDS).description("Published results by outcome").tag("result", k)
+                .register(registry)).increment();
+    }
+
+    /**
+     * Counts a call to a dependency by its outcome.
+     *
+     * @param dependency {@link #FACT_MANAGER} or {@link #USER_MANAGER}.
+     * @param result     {@link #SUCCESS}, {@link #FAILURE}, {@link #TIMEOUT}, {@link #REJECTED} by the bulkhead or not done as the circuit
+     *                   is {@link #OPEN}.
+     */
+    public void dependency(String dependency, String result) {
+        dependencies.computeIfAbsent(dependency + result, k -> Counter.builder(DEPENDENCIES).description("Calls to dependencies by outcome")
+                .tag("dependency", dependency).tag("result", result).register(registry)).increment();
+    }
+
+    /**
+     * Exposes the state of the circuit of a dependency.
+     *
+     * @param dependency {@link #FACT_MANAGER} or {@link #USER_MANAGER}.
+     * @param circuit    the object that has the state.
+     * @param state      gets the state: 0 closed, 1 half-open, 2 open.
+     * @param <T>        the type of the object.
+     */
+    public <T> void circuit(String dependency, T circuit, ToDoubleFunction<T> state) {
+        Gauge.builder(CIRCUITS, circuit, state).description("State of the circuit of each dependency").tag("dependency", dependency)
+                .register(registry);
+    }
+
+    /**
+     * Counts a result that has been published from the cached aggregate, as it cannot be rebuilt from an unavailable dependency.
+     *
+     * @param result {@link #ORGANIZATION} or {@link #TEAM}.
+     */
+    public void degraded(String result) {
+        degraded.computeIfAbsent(result, k -> Counter.builder(DEGRADED).description("Results published from cached aggregates")
+                .tag("result", k).register(registry)).increment();
+    }
+
+    public void facts(int count) {
+        facts.record(count);
+    }
+
+    /**
+     * Records the time since the submission was created until its result is published.
+     *
+     * @param result       {@link #ORGANIZATION}, {@link #TEAM} or {@link #UNIT}.
+     * @param createdAt    when the submission was created.
+     * @param contributors the users included on the result.
+     */
+    public void lag(String result, LocalDateTime createdAt, int contributors) {
+        if (createdAt == null) {
+            return;
+        }
+        final String size = getSizeBucket(contributors);
+        lags.computeIfAbsent(result + size, k -> Timer.builder(LAG).description("Time since the form is submitted until the result is published")
+                .tag("result", result).tag("size", size).register(registry)).record(Duration.between(createdAt, LocalDateTime.now()));
+    }
+
+    private static String getSizeBucket(int contributors) {
+        int limit = SIZE_BUCKET_BASE;
+        for (int i = 0; i < SIZE_BUCKETS; i++) {
+            if (contributors <= limit) {
+                return String.valueOf(limit);
+            }
+            limit *= SIZE_BUCKET_BASE;
+        }
+        return LARGEST_SIZE_BUCKET;
+    }
+}
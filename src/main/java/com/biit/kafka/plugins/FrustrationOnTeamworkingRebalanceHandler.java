@@ -0,0 +1,97 @@
+package com.biit.kafka.plugins;
+
+/*-
+ * #%L
+ * Frustration on Teamworking Organization Statistics Generator
+ * %%
+ * Copyright (C) 2024 - 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Handles the partitions assigned to or revoked from the listeners. Shared by the single record and the batch listeners, as only one of
+ * them is started.
+ */
+@Component
+@ConditionalOnExpression("${spring.kafka.enabled:false}")
+public class FrustrationOnTeamworkingRebalanceHandler {
+
+    private FrustrationOnTeamworkingStatisticsStore statisticsStore;
+    private FrustrationOnTeamworkingRepartitioner repartitioner;
+    private FrustrationOnTeamworkingEventSender eventSender;
+
+    @Autowired(required = false)
+    public void setStatisticsStore(FrustrationOnTeamworkingStatisticsStore statisticsStore) {
+        this.statisticsStore = statisticsStore;
+    }
+
+    @Autowired(required = false)
+    public void setRepartitioner(FrustrationOnTeamworkingRepartitioner repartitioner) {
+        this.repartitioner = repartitioner;
+    }
+
+    @Autowired(required = false)
+    public void setEventSender(FrustrationOnTeamworkingEventSender eventSender) {
+        this.eventSender = eventSender;
+    }
+
+    /**
+     * Replays the events received after the snapshot restored by the {@link FrustrationOnTeamworkingStatisticsStore}, and takes the
+     * ownership of the organizations of the partitions. The next result of each key is sent as a snapshot, as other instance may have sent
+     * results of the same keys meanwhile.
+     *
+     * @param assignments the assigned partitions.
+     * @param callback    to move the consumer.
+     */
+    public void assigned(Map<TopicPartition, Long> assignments, ConsumerSeekAware.ConsumerSeekCallback callback) {
+        if (eventSender != null) {
+            eventSender.invalidateDeltas();
+        }
+        if (repartitioner != null) {
+            repartitioner.assigned(assignments.keySet());
+        }
+        if (statisticsStore == null) {
+            return;
+        }
+        assignments.keySet().forEach(topicPartition -> {
+            final Long offset = statisticsStore.pollRestoredOffset(topicPartition);
+            if (offset != null) {
+                FrustrationOnTeamworkingEventsLogger.info(this.getClass(), "Replaying '{}' from offset '{}'.", topicPartition, offset + 1);
+                callback.seek(topicPartition.topic(), topicPartition.partition(), offset + 1);
+            }
+        });
+    }
+
+    /**
+     * Releases the organizations of the partitions, that will be processed by other instance.
+     *
+     * @param partitions the revoked partitions.
+     */
+    public void revoked(Collection<TopicPartition> partitions) {
+        if (repartitioner != null) {
+            repartitioner.revoked(partitions);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.biit.kafka.plugins;
+
+/*-
+ * #%L
+ * Frustration on Teamworking Organization Statistics Generator
+ * %%
+ * Copyright (C) 2024 - 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.kafka.events.Event;
+import com.biit.kafka.events.KafkaEventTemplate;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.utils.Utils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Allows running several instances on the same consumer group. The accepted events are forwarded to a repartition topic using the
+ * organization as key, so all the events of an organization are received by the same instance, that is the only one that keeps its
+ * aggregates. When a partition of the repartition topic is revoked, the aggregates of its organizations are removed, as the new owner
+ * will update them. Trends are not handed over, so {@link FrustrationOnTeamworkingTrends} are disabled when repartitioning. Disabled if no
+ * repartition topic is configured.
+ */
+@Component
+@ConditionalOnExpression("${spring.kafka.enabled:false}")
+public class FrustrationOnTeamworkingRepartitioner {
+    private final KafkaEventTemplate kafkaTemplate;
+    private final String repartitionTopic;
+    private final FrustrationOnTeamworkingAggregator frustrationOnTeamworkingAggregator;
+    private final FrustrationOnTeamworkingEventPipeline frustrationOnTeamworkingEventPipeline;
+
+    //Partitions of the repartition topic assigned to this instance.
+    private final Set<Integer> ownedPartitions = ConcurrentHashMap.newKeySet();
+    private volatile int partitions = 0;
+
+    private FrustrationOnTeamworkingRepartitioner() {
+        this.kafkaTemplate = null;
+        this.repartitionTopic = null;
+        this.frustrationOnTeamworkingAggregator = null;
+        this.frustrationOnTeamworkingEventPipeline = null;
+    }
+
+    @Autowired(required = false)
+    public FrustrationOnTeamworkingRepartitioner(KafkaEventTemplate kafkaTemplate,
+                                                 @Value("${spring.kafka.frustration.repartition.topic:}") String repartitionTopic,
+                                                 FrustrationOnTeamworkingAggregator frustrationOnTeamworkingAggregator,
+                                                 FrustrationOnTeamworkingEventPipeline frustrationOnTeamworkingEventPipeline) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.repartitionTopic = repartitionTopic;
+        this.frustrationOnTeamworkingAggregator = frustrationOnTeamworkingAggregator;
+        this.frustrationOnTeamworkingEventPipeline = frustrationOnTeamworkingEventPipeline;
+    }
+
+    public boolean isEnabled() {
+        return kafkaTemplate != null && repartitionTopic != null && !repartitionTopic.isBlank();
+    }
+
+    public boolean isRepartitionTopic(String topic) {
+        return isEnabled() && Objects.equals(topic, repartitionTopic);
+    }
+
+    /**
+     * Sends an accepted event to the repartition topic, on the partition of its organization.
+     *
+     * @param event        the event.
+     * @param organization the organization of the event.
+     * @return completed when the event is stored on the repartition topic.
+     */
+    public CompletableFuture<?> forward(Event event, String organization) {
+        return kafkaTemplate.send(repartitionTopic, Objects.toString(organization, ""), event);
+    }
+
+    /**
+     * Partition of the repartition topic that receives the events of an organization. Same as the default partitioner of Kafka.
+     *
+     * @param organization the organization name.
+     * @return the partition.
+     */
+    public int getPartition(String organization) {
+        if (partitions == 0) {
+            refreshPartitions();
+        }
+        return Utils.toPositive(Utils.murmur2(Objects.toString(organization, "").getBytes(StandardCharsets.UTF_8))) % partitions;
+    }
+
+    /**
+     * Reads the number of partitions of the repartition topic, as they can be added at any time.
+     */
+    private void refreshPartitions() {
+        partitions = Math.max(kafkaTemplate.partitionsFor(repartitionTopic).size(), 1);
+    }
+
+    /**
+     * Registers the new partitions of this instance. The aggregates of any organization that belongs to other instance are removed, i.e.
+     * the ones restored from a snapshot.
+     *
+     * @param topicPartitions the assigned partitions of all topics.
+     */
+    public void assigned(Collection<TopicPartition> topicPartitions) {
+        if (!isEnabled()) {
+            return;
+        }
+        topicPartitions.stream().filter(topicPartition -> isRepartitionTopic(topicPartition.topic()))
+                .forEach(topicPartition -> ownedPartitions.add(topicPartition.partition()));
+        //A rebalance is triggered when partitions are added to the topic.
+        refreshPartitions();
+        removeOrganizations();
+    }
+
+    /**
+     * Unregisters the partitions of this instance, and removes the aggregates of their organizations.
+     *
+     * @param topicPartitions the revoked partitions of all topics.
+     */
+    public void revoked(Collection<TopicPartition> topicPartitions) {
+        if (!isEnabled()) {
+            return;
+        }
+        topicPartitions.stream().filter(topicPartition -> isRepartitionTopic(topicPartition.topic()))
+                .forEach(topicPartition -> ownedPartitions.remove(topicPartition.partition()));
+        removeOrganizations();
+    }
+
+    private void removeOrganizations() {
+        final Set<String> organizations = new HashSet<>(frustrationOnTeamworkingAggregator.getOrganizationAggregates().keySet());
+        organizations.stream().filter(organization -> !ownedPartitions.contains(getPartition(organization))).forEach(organization -> {
+            FrustrationOnTeamworkingEventsLogger.debug(this.getClass(), "Organization '{}' is processed by other instance.", organization);
+            //After the events of the organization already received.
+            frustrationOnTeamworkingEventPipeline.submit(organization, () -> frustrationOnTeamworkingAggregator.removeOrganization(organization));
+        });
+        //Teams are derived again from the organizations.
+        frustrationOnTeamworkingAggregator.clearTeamAggregates();
+    }
+}
@@ -0,0 +1,78 @@
+package com.biit.kafka.plugins;
+
+/*-
+ * #%L
+ * Frustration on Teamworking Organization Statistics Generator
+ * %%
+ * Copyright (C) 2024 - 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import java.util.Map;
+
+/**
+ * Compact result with only the variables that have changed since the previous result with the same key. Removed variables have a null
+ * value. Periodically, a snapshot with all variables is sent instead, so new consumers can start from it. The sequence of each key is
+ * consecutive: a gap means that a result has been lost, and the consumer must wait for the next snapshot.
+ */
+public class FrustrationOnTeamworkingResultDelta {
+    private String key;
+    private long sequence;
+    private boolean snapshot;
+    private Map<String, Map<String, Object>> formVariables;
+
+    public FrustrationOnTeamworkingResultDelta() {
+    }
+
+    public FrustrationOnTeamworkingResultDelta(String key, long sequence, boolean snapshot, Map<String, Map<String, Object>> formVariables) {
+        this.key = key;
+        this.sequence = sequence;
+        this.snapshot = snapshot;
+        this.formVariables = formVariables;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public boolean isSnapshot() {
+        return snapshot;
+    }
+
+    public void setSnapshot(boolean snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    public Map<String, Map<String, Object>> getFormVariables() {
+        return formVariables;
+    }
+
+    public void setFormVariables(Map<String, Map<String, Object>> formVariables) {
+        this.formVariables = formVariables;
+    }
+}
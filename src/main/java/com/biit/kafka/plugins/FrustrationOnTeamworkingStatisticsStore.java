@@ -0,0 +1,255 @@
+package com.biit.kafka.plugins;
+
+/*-
+ * #%L
+ * Frustration on Teamworking Organization Statistics Generator
+ * %%
+ * Copyright (C) 2024 - 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Persists the organization and team aggregates, with the contribution of each user, and their trends on a local snapshot file. The
+ * snapshot also stores the offset of the last event included on each partition. On startup, the aggregates are restored from the snapshot
+ * and the consumer is moved back to these offsets, replaying the events received after the snapshot. Therefore, a restart does not need to
+ * rebuild the aggregates from the Fact Manager. Disabled if no file is configured.
+ */
+@Component
+@ConditionalOnExpression("${spring.kafka.enabled:false}")
+public class FrustrationOnTeamworkingStatisticsStore implements DisposableBean {
+    private static final int MAGIC_NUMBER = 0x466f5453;
+    private static final int VERSION = 2;
+
+    private final FrustrationOnTeamworkingAggregator frustrationOnTeamworkingAggregator;
+    private final FrustrationOnTeamworkingTrends trends;
+    private final Path snapshotFile;
+    private final ScheduledExecutorService scheduler;
+
+    //Offsets received but not processed yet, by partition.
+    private final Map<TopicPartition, NavigableSet<Long>> pendingOffsets = new ConcurrentHashMap<>();
+    //Highest offset received, by partition.
+    private final Map<TopicPartition, Long> receivedOffsets = new ConcurrentHashMap<>();
+    //Offsets stored on the restored snapshot.
+    private final Map<TopicPartition, Long> restoredOffsets = new HashMap<>();
+    //Partitions not moved yet to the restored offsets.
+    private final Map<TopicPartition, Long> seekOffsets = new ConcurrentHashMap<>();
+
+    public FrustrationOnTeamworkingStatisticsStore(FrustrationOnTeamworkingAggregator frustrationOnTeamworkingAggregator,
+                                                   FrustrationOnTeamworkingTrends trends,
+                                                   @Value("${spring.kafka.frustration.store.file:}") String snapshotFile,
+                                                   @Value("${spring.kafka.frustration.store.snapshot.seconds:60}") long snapshotSeconds) {
+        this.frustrationOnTeamworkingAggregator = frustrationOnTeamworkingAggregator;
+        this.trends = trends;
+        if (snapshotFile == null || snapshotFile.isBlank()) {
+            this.snapshotFile = null;
+            this.scheduler = null;
+            return;
+        }
+        this.snapshotFile = Path.of(snapshotFile);
+        restore();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor();
+        this.scheduler.scheduleWithFixedDelay(this::snapshot, snapshotSeconds, snapshotSeconds, TimeUnit.SECONDS);
+    }
+
+    public boolean isEnabled() {
+        return snapshotFile != null;
+    }
+
+    /**
+     * Registers an event that is going to be processed.
+     *
+     * @param topic     the topic.
+     * @param partition the partition.
+     * @param offset    the offset of the event.
+     */
+    public void received(String topic, int partition, long offset) {
+        if (!isEnabled()) {
+            return;
+        }
+        final TopicPartition topicPartition = new TopicPartition(topic, partition);
+        pendingOffsets.computeIfAbsent(topicPartition, k -> new ConcurrentSkipListSet<>()).add(offset);
+        receivedOffsets.merge(topicPartition, offset, Math::max);
+    }
+
+    /**
+     * Registers an event whose processing has finished, and therefore is included on the aggregates.
+     *
+     * @param topic     the topic.
+     * @param partition the partition.
+     * @param offset    the offset of the event.
+     */
+    public void processed(String topic, int partition, long offset) {
+        if (!isEnabled()) {
+            return;
+        }
+        final NavigableSet<Long> pending = pendingOffsets.get(new TopicPartition(topic, partition));
+        if (pending != null) {
+            pending.remove(offset);
+        }
+    }
+
+    /**
+     * Gets the offset stored on the snapshot used on startup for a partition. Each offset is only returned once, so the partition is not
+     * moved back again on later rebalances.
+     *
+     * @param topicPartition the partition.
+     * @return the last offset included on the aggregates, or null if the partition must not be moved.
+     */
+    public Long pollRestoredOffset(TopicPartition topicPartition) {
+        return seekOffsets.remove(topicPartition);
+    }
+
+    /**
+     * Writes all aggregates on the snapshot file. The file is replaced atomically.
+     */
+    public synchronized void snapshot() {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            //Offsets are taken before the aggregates, so any event processed meanwhile is replayed. Contributions are replaced.
+            final Map<TopicPartition, Long> offsets = getProcessedOffsets();
+            final Path temporalFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(temporalFile))))) {
+                output.writeInt(MAGIC_NUMBER);
+                output.writeInt(VERSION);
+                output.writeInt(offsets.size());
+                for (Map.Entry<TopicPartition, Long> offset : offsets.entrySet()) {
+                    output.writeUTF(offset.getKey().topic());
+                    output.writeInt(offset.getKey().partition());
+                    output.writeLong(offset.getValue());
+                }
+                writeAggregates(output, frustrationOnTeamworkingAggregator.getOrganizationAggregates());
+                writeAggregates(output, frustrationOnTeamworkingAggregator.getTeamAggregates());
+                writeUnits(output, frustrationOnTeamworkingAggregator.getUnits());
+                trends.write(output);
+            }
+            Files.move(temporalFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            FrustrationOnTeamworkingEventsLogger.debug(this.getClass(), "Snapshot stored on '{}'.", snapshotFile);
+        } catch (IOException e) {
+            FrustrationOnTeamworkingEventsLogger.errorMessage(this.getClass(), e);
+        }
+    }
+
+    private Map<TopicPartition, Long> getProcessedOffsets() {
+        final Map<TopicPartition, Long> offsets = new HashMap<>(restoredOffsets);
+        receivedOffsets.forEach((topicPartition, receivedOffset) -> {
+            final NavigableSet<Long> pending = pendingOffsets.get(topicPartition);
+            final Long firstPending = pending != null && !pending.isEmpty() ? pending.first() : null;
+            //All events before the first pending one are included.
+            offsets.put(topicPartition, firstPending != null ? firstPending - 1 : receivedOffset);
+        });
+        return offsets;
+    }
+
+    private void writeAggregates(DataOutputStream output, Map<String, FrustrationOnTeamworkingAggregate> aggregates) throws IOException {
+        final Map<String, FrustrationOnTeamworkingAggregate> copy = new HashMap<>(aggregates);
+        output.writeInt(copy.size());
+        for (Map.Entry<String, FrustrationOnTeamworkingAggregate> aggregate : copy.entrySet()) {
+            output.writeUTF(aggregate.getKey());
+            aggregate.getValue().write(output);
+        }
+    }
+
+    private void writeUnits(DataOutputStream output, Map<String, Map<String, String>> units) throws IOException {
+        final Map<String, Map<String, String>> copy = new HashMap<>();
+        units.forEach((organization, organizationUnits) -> copy.put(organization, new HashMap<>(organizationUnits)));
+        output.writeInt(copy.size());
+        for (Map.Entry<String, Map<String, String>> organizationUnits : copy.entrySet()) {
+            output.writeUTF(organizationUnits.getKey());
+            output.writeInt(organizationUnits.getValue().size());
+            for (Map.Entry<String, String> unit : organizationUnits.getValue().entrySet()) {
+                output.writeUTF(unit.getKey());
+                output.writeUTF(unit.getValue());
+            }
+        }
+    }
+
+    private void restore() {
+        if (!Files.exists(snapshotFile)) {
+            return;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(snapshotFile))))) {
+            if (input.readInt() != MAGIC_NUMBER || input.readInt() != VERSION) {
+                FrustrationOnTeamworkingEventsLogger.warning(this.getClass(), "Invalid snapshot file '{}'. Ignored.", snapshotFile);
+                return;
+            }
+            final int offsets = input.readInt();
+            for (int i = 0; i < offsets; i++) {
+                restoredOffsets.put(new TopicPartition(input.readUTF(), input.readInt()), input.readLong());
+            }
+            final int organizations = input.readInt();
+            for (int i = 0; i < organizations; i++) {
+                frustrationOnTeamworkingAggregator.setOrganizationAggregate(input.readUTF(), FrustrationOnTeamworkingAggregate.read(input));
+            }
+            final int teams = input.readInt();
+            for (int i = 0; i < teams; i++) {
+                frustrationOnTeamworkingAggregator.setTeamAggregate(input.readUTF(), FrustrationOnTeamworkingAggregate.read(input));
+            }
+            final int organizationsWithUnits = input.readInt();
+            for (int i = 0; i < organizationsWithUnits; i++) {
+                final String organization = input.readUTF();
+                final int users = input.readInt();
+                for (int j = 0; j < users; j++) {
+                    frustrationOnTeamworkingAggregator.setUnit(organization, input.readUTF(), input.readUTF());
+                }
+            }
+            trends.read(input);
+            seekOffsets.putAll(restoredOffsets);
+            FrustrationOnTeamworkingEventsLogger.info(this.getClass(), "Restored '{}' organizations and '{}' teams from '{}'.",
+                    organizations, teams, snapshotFile);
+        } catch (IOException e) {
+            //Aggregates will be rebuilt from the Fact Manager.
+            restoredOffsets.clear();
+            frustrationOnTeamworkingAggregator.clear();
+            trends.clear();
+            FrustrationOnTeamworkingEventsLogger.errorMessage(this.getClass(), e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            snapshot();
+        }
+    }
+}
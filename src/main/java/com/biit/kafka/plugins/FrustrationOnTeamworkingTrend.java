@@ -0,0 +1,229 @@
+package com.biit.kafka.plugins;
+
+/*-
+ * #%L
+ * Frustration on Teamworking Organization Statistics Generator
+ * %%
+ * Copyright (C) 2024 - 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Statistics of the submissions received on each day, week or month, kept on a ring buffer of aggregates. Only the latest periods are
+ * stored: a submission from a period older than the buffer is ignored, and the bucket of a new period replaces the oldest one. As on the
+ * running aggregates, only the latest submission of each user on a period is taken into account, so the events replayed after restoring a
+ * snapshot are not counted twice.
+ */
+public class FrustrationOnTeamworkingTrend {
+    private static final long EMPTY = Long.MIN_VALUE;
+    //1970-01-01 is thursday. Weeks start on monday.
+    private static final int EPOCH_WEEK_OFFSET = 3;
+    private static final int DAYS_BY_WEEK = 7;
+    private static final int MONTHS_BY_YEAR = 12;
+
+    public enum Period {
+        DAILY("Daily"),
+        WEEKLY("Weekly"),
+        MONTHLY("Monthly");
+
+        private final String label;
+
+        Period(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * Consecutive number of the period that contains a date.
+         *
+         * @param date the date.
+         * @return the period number.
+         */
+        public long getIndex(LocalDate date) {
+            return switch (this) {
+                case DAILY -> date.toEpochDay();
+                case WEEKLY -> Math.floorDiv(date.toEpochDay() + EPOCH_WEEK_OFFSET, DAYS_BY_WEEK);
+                case MONTHLY -> date.getYear() * (long) MONTHS_BY_YEAR + date.getMonthValue() - 1;
+            };
+        }
+
+        /**
+         * First day of a period.
+         *
+         * @param index the period number.
+         * @return the date.
+         */
+        public LocalDate getStart(long index) {
+            return switch (this) {
+                case DAILY -> LocalDate.ofEpochDay(index);
+                case WEEKLY -> LocalDate.ofEpochDay(index * DAYS_BY_WEEK - EPOCH_WEEK_OFFSET);
+                case MONTHLY -> LocalDate.of((int) Math.floorDiv(index, MONTHS_BY_YEAR), (int) Math.floorMod(index, MONTHS_BY_YEAR) + 1, 1);
+            };
+        }
+    }
+
+    private final Period period;
+    private final long[] indexes;
+    private final FrustrationOnTeamworkingAggregate[] buckets;
+    private long latestIndex = EMPTY;
+
+    public FrustrationOnTeamworkingTrend(Period period, int periods) {
+        this.period = period;
+        this.indexes = new long[periods];
+        this.buckets = new FrustrationOnTeamworkingAggregate[periods];
+        Arrays.fill(indexes, EMPTY);
+    }
+
+    public Period getPeriod() {
+        return period;
+    }
+
+    /**
+     * Adds a submission to the bucket of its period, replacing any previous submission of the same user on the period.
+     *
+     * @param createdAt     when the form was submitted.
+     * @param user          the user that has submitted the form.
+     * @param formVariables the variables of the submitted form as element --> variable --> value.
+     * @return the period number, or null if the period is older than the buffer.
+     */
+    public synchronized Long add(LocalDateTime createdAt, String user, Map<String, Map<String, Object>> formVariables) {
+        final long index = period.getIndex(createdAt.toLocalDate());
+        final FrustrationOnTeamworkingAggregate bucket = getBucket(index);
+        if (bucket == null) {
+            return null;
+        }
+        bucket.setContribution(user, formVariables);
+        return index;
+    }
+
+    private FrustrationOnTeamworkingAggregate getBucket(long index) {
+        if (latestIndex != EMPTY && index <= latestIndex - buckets.length) {
+            return null;
+        }
+        latestIndex = Math.max(latestIndex, index);
+        final int position = (int) Math.floorMod(index, (long) buckets.length);
+        if (indexes[position] != index) {
+            //Oldest period is replaced.
+            indexes[position] = index;
+            buckets[position] = new FrustrationOnTeamworkingAggregate();
+        }
+        return buckets[position];
+    }
+
+    /**
+     * Gets the statistics of one period.
+     *
+     * @param index       the period number.
+     * @param formLabel   the label of the submitted form, as used on the element names.
+     * @param outputLabel the label that will replace the form label on the element names.
+     * @param spread      if true, the count, standard deviation, minimum and maximum are also included.
+     * @return a map with the shape of {@link com.biit.drools.form.DroolsSubmittedForm#getFormVariables()}, or null if the period is not
+     *     stored.
+     */
+    public synchronized Map<String, Map<String, Object>> getFormVariables(long index, String formLabel, String outputLabel, boolean spread) {
+        final int position = (int) Math.floorMod(index, (long) buckets.length);
+        if (indexes[position] != index) {
+            return null;
+        }
+        return getFormVariables(buckets[position], formLabel, outputLabel, spread);
+    }
+
+    private static Map<String, Map<String, Object>> getFormVariables(FrustrationOnTeamworkingAggregate bucket, String formLabel, String outputLabel,
+                                                                     boolean spread) {
+        return spread ? bucket.getStatistics(formLabel, outputLabel) : bucket.getAverages(formLabel, outputLabel);
+    }
+
+    /**
+     * Gets the statistics of all stored periods.
+     *
+     * @param formLabel   the label of the submitted form, as used on the element names.
+     * @param outputLabel the label that will replace the form label on the element names.
+     * @param spread      if true, the count, standard deviation, minimum and maximum are also included.
+     * @return the form variables by first day of the period, sorted.
+     */
+    public synchronized SortedMap<LocalDate, Map<String, Map<String, Object>>> getSeries(String formLabel, String outputLabel, boolean spread) {
+        final SortedMap<LocalDate, Map<String, Map<String, Object>>> series = new TreeMap<>();
+        for (int i = 0; i < buckets.length; i++) {
+            if (indexes[i] != EMPTY) {
+                series.put(period.getStart(indexes[i]), getFormVariables(buckets[i], formLabel, outputLabel, spread));
+            }
+        }
+        return series;
+    }
+
+    /**
+     * Writes the stored periods in a compact binary format.
+     *
+     * @param output where to write.
+     * @throws IOException if cannot be written.
+     */
+    public synchronized void write(DataOutput output) throws IOException {
+        int stored = 0;
+        for (long index : indexes) {
+            if (index != EMPTY) {
+                stored++;
+            }
+        }
+        output.writeInt(stored);
+        for (int i = 0; i < buckets.length; i++) {
+            if (indexes[i] != EMPTY) {
+                output.writeLong(indexes[i]);
+                buckets[i].write(output);
+            }
+        }
+    }
+
+    /**
+     * Reads the periods written by {@link #write(DataOutput)}. If the buffer is now smaller, only the latest periods are kept.
+     *
+     * @param input   where to read.
+     * @param period  the period of the trend.
+     * @param periods the size of the buffer.
+     * @return the trend.
+     * @throws IOException if cannot be read.
+     */
+    public static FrustrationOnTeamworkingTrend read(DataInput input, Period period, int periods) throws IOException {
+        final FrustrationOnTeamworkingTrend trend = new FrustrationOnTeamworkingTrend(period, periods);
+        final int stored = input.readInt();
+        final TreeMap<Long, FrustrationOnTeamworkingAggregate> buckets = new TreeMap<>();
+        for (int i = 0; i < stored; i++) {
+            buckets.put(input.readLong(), FrustrationOnTeamworkingAggregate.read(input));
+        }
+        if (buckets.isEmpty()) {
+            return trend;
+        }
+        trend.latestIndex = buckets.lastKey();
+        buckets.tailMap(trend.latestIndex - periods, false).forEach((index, aggregate) -> {
+            final int position = (int) Math.floorMod(index, (long) periods);
+            trend.indexes[position] = index;
+            trend.buckets[position] = aggregate;
+        });
+        return trend;
+    }
+}
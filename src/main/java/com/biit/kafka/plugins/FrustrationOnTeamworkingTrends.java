@@ -0,0 +1,182 @@
+package com.biit.kafka.plugins;
+
+/*-
+ * #%L
+ * Frustration on Teamworking Organization Statistics Generator
+ * %%
+ * Copyright (C) 2024 - 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the daily, weekly and monthly trends of each organization and team. Trends are only built from the received events, as the Fact
+ * Manager only provides the latest submission of each user, and are persisted by {@link FrustrationOnTeamworkingStatisticsStore}.
+ * A period is disabled if the number of periods to keep is zero. Trends are disabled when a repartition topic is defined, as the history of
+ * an organization cannot be handed over to the instance that takes it on a rebalance.
+ */
+@Component
+@ConditionalOnExpression("${spring.kafka.enabled:false}")
+public class FrustrationOnTeamworkingTrends {
+    private static final char TEAM_SEPARATOR = '\u001F';
+
+    private final Map<FrustrationOnTeamworkingTrend.Period, Integer> periods = new EnumMap<>(FrustrationOnTeamworkingTrend.Period.class);
+
+    private final Map<FrustrationOnTeamworkingTrend.Period, Map<String, FrustrationOnTeamworkingTrend>> organizationTrends =
+            new EnumMap<>(FrustrationOnTeamworkingTrend.Period.class);
+    private final Map<FrustrationOnTeamworkingTrend.Period, Map<String, FrustrationOnTeamworkingTrend>> teamTrends =
+            new EnumMap<>(FrustrationOnTeamworkingTrend.Period.class);
+
+    public FrustrationOnTeamworkingTrends(@Value("${spring.kafka.frustration.trends.days:0}") int days,
+                                          @Value("${spring.kafka.frustration.trends.weeks:0}") int weeks,
+                                          @Value("${spring.kafka.frustration.trends.months:0}") int months,
+                                          @Value("${spring.kafka.frustration.repartition.topic:}") String repartitionTopic) {
+        if (repartitionTopic != null && !repartitionTopic.isBlank()) {
+            if (days > 0 || weeks > 0 || months > 0) {
+                FrustrationOnTeamworkingEventsLogger.warning(this.getClass(), "Trends disabled, as they are not kept when repartitioning on '{}'.",
+                        repartitionTopic);
+            }
+            return;
+        }
+        setPeriods(FrustrationOnTeamworkingTrend.Period.DAILY, days);
+        setPeriods(FrustrationOnTeamworkingTrend.Period.WEEKLY, weeks);
+        setPeriods(FrustrationOnTeamworkingTrend.Period.MONTHLY, months);
+    }
+
+    private void setPeriods(FrustrationOnTeamworkingTrend.Period period, int size) {
+        if (size > 0) {
+            periods.put(period, size);
+            organizationTrends.put(period, new ConcurrentHashMap<>());
+            teamTrends.put(period, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Enabled periods.
+     *
+     * @return the periods, empty if trends are disabled.
+     */
+    public List<FrustrationOnTeamworkingTrend.Period> getPeriods() {
+        return List.copyOf(periods.keySet());
+    }
+
+    public boolean isEnabled() {
+        return !periods.isEmpty();
+    }
+
+    /**
+     * Gets the trend of an organization, creating it if it does not exist.
+     *
+     * @param organization the organization name.
+     * @param period       an enabled period.
+     * @return the trend.
+     */
+    public FrustrationOnTeamworkingTrend getOrganizationTrend(String organization, FrustrationOnTeamworkingTrend.Period period) {
+        return get(organizationTrends, period, organization);
+    }
+
+    /**
+     * Gets the trend of a team, creating it if it does not exist.
+     *
+     * @param organization the organization of the submissions.
+     * @param team         the team id.
+     * @param period       an enabled period.
+     * @return the trend.
+     */
+    public FrustrationOnTeamworkingTrend getTeamTrend(String organization, String team, FrustrationOnTeamworkingTrend.Period period) {
+        return get(teamTrends, period, getTeamKey(organization, team));
+    }
+
+    private String getTeamKey(String organization, String team) {
+        return Objects.toString(organization, "") + TEAM_SEPARATOR + team;
+    }
+
+    private FrustrationOnTeamworkingTrend get(Map<FrustrationOnTeamworkingTrend.Period, Map<String, FrustrationOnTeamworkingTrend>> trends,
+                                              FrustrationOnTeamworkingTrend.Period period, String key) {
+        //Concurrent maps do not allow null keys.
+        return trends.get(period).computeIfAbsent(Objects.toString(key, ""), k -> new FrustrationOnTeamworkingTrend(period, periods.get(period)));
+    }
+
+    public void clear() {
+        organizationTrends.values().forEach(Map::clear);
+        teamTrends.values().forEach(Map::clear);
+    }
+
+    /**
+     * Writes all trends in a compact binary format.
+     *
+     * @param output where to write.
+     * @throws IOException if cannot be written.
+     */
+    public void write(DataOutput output) throws IOException {
+        output.writeInt(periods.size());
+        for (FrustrationOnTeamworkingTrend.Period period : periods.keySet()) {
+            output.writeUTF(period.name());
+            writeTrends(output, organizationTrends.get(period));
+            writeTrends(output, teamTrends.get(period));
+        }
+    }
+
+    private void writeTrends(DataOutput output, Map<String, FrustrationOnTeamworkingTrend> trends) throws IOException {
+        final Map<String, FrustrationOnTeamworkingTrend> copy = new HashMap<>(trends);
+        output.writeInt(copy.size());
+        for (Map.Entry<String, FrustrationOnTeamworkingTrend> trend : copy.entrySet()) {
+            output.writeUTF(trend.getKey());
+            trend.getValue().write(output);
+        }
+    }
+
+    /**
+     * Reads the trends written by {@link #write(DataOutput)}. Trends of periods that are now disabled are discarded.
+     *
+     * @param input where to read.
+     * @throws IOException if cannot be read.
+     */
+    public void read(DataInput input) throws IOException {
+        final int storedPeriods = input.readInt();
+        for (int i = 0; i < storedPeriods; i++) {
+            final FrustrationOnTeamworkingTrend.Period period = FrustrationOnTeamworkingTrend.Period.valueOf(input.readUTF());
+            readTrends(input, period, organizationTrends.get(period));
+            readTrends(input, period, teamTrends.get(period));
+        }
+    }
+
+    private void readTrends(DataInput input, FrustrationOnTeamworkingTrend.Period period, Map<String, FrustrationOnTeamworkingTrend> trends)
+            throws IOException {
+        final int size = input.readInt();
+        for (int i = 0; i < size; i++) {
+            final String key = input.readUTF();
+            //Always read to move forward on the input.
+            final FrustrationOnTeamworkingTrend trend = FrustrationOnTeamworkingTrend.read(input, period, periods.getOrDefault(period, 1));
+            if (trends != null) {
+                trends.put(key, trend);
+            }
+        }
+    }
+}
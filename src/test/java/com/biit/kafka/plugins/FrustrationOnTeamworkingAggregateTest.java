@@ -0,0 +1,191 @@
+package com.biit.kafka.plugins;
+
+/*-
+ * #%L
+ * Frustration on Teamworking Organization Statistics Generator
+ * %%
+ * Copyright (C) 2024 - 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.drools.form.DroolsSubmittedForm;
+import com.biit.utils.file.FileReader;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+@Test(groups = "aggregation")
+public class FrustrationOnTeamworkingAggregateTest {
+    private static final String FORM_LABEL = "The 5 Frustrations on Teamworking";
+    private static final String ELEMENT = "/DroolsSubmittedForm[@label='" + FORM_LABEL + "']";
+    private static final String OUTPUT_ELEMENT = "/DroolsSubmittedForm[@label='" + FrustrationOnTeamworkingEventConverter.FORM_ORGANIZATION_OUTPUT + "']";
+    private static final String DROOLS_FORM_FILE_PATH = "drools/The 5 Frustrations on Teamworking.json";
+    private static final double DELTA = 0.000001;
+
+    private Map<String, Map<String, Object>> getFormVariables(double frustration1, double frustration2) {
+        final Map<String, Object> variables = new HashMap<>();
+        variables.put("Frustration1", frustration1);
+        variables.put("Frustration2", frustration2);
+        final Map<String, Map<String, Object>> formVariables = new HashMap<>();
+        formVariables.put(ELEMENT, variables);
+        return formVariables;
+    }
+
+    @Test
+    public void averageContributions() {
+        final FrustrationOnTeamworkingAggregate aggregate = new FrustrationOnTeamworkingAggregate();
+        aggregate.setContribution("user1", getFormVariables(1.0, 0.5));
+        aggregate.setContribution("user2", getFormVariables(0.0, 0.25));
+
+        final Map<String, Map<String, Object>> averages = aggregate.getAverages(FORM_LABEL, FrustrationOnTeamworkingEventConverter.FORM_ORGANIZATION_OUTPUT);
+        Assert.assertEquals(aggregate.getContributors(), 2);
+        Assert.assertEquals((Double) averages.get(OUTPUT_ELEMENT).get("Frustration1"), 0.5, DELTA);
+        Assert.assertEquals((Double) averages.get(OUTPUT_ELEMENT).get("Frustration2"), 0.375, DELTA);
+    }
+
+    @Test
+    public void replaceContribution() {
+        final FrustrationOnTeamworkingAggregate aggregate = new FrustrationOnTeamworkingAggregate();
+        aggregate.setContribution("user1", getFormVariables(1.0, 0.5));
+        aggregate.setContribution("user2", getFormVariables(0.0, 0.25));
+        //User submits again the form.
+        aggregate.setContribution("user1", getFormVariables(0.5, 0.75));
+
+        final Map<String, Map<String, Object>> averages = aggregate.getAverages(FORM_LABEL, FrustrationOnTeamworkingEventConverter.FORM_ORGANIZATION_OUTPUT);
+        Assert.assertEquals(aggregate.getContributors(), 2);
+        Assert.assertEquals((Double) averages.get(OUTPUT_ELEMENT).get("Frustration1"), 0.25, DELTA);
+        Assert.assertEquals((Double) averages.get(OUTPUT_ELEMENT).get("Frustration2"), 0.5, DELTA);
+    }
+
+    @Test
+    public void removeContribution() {
+        final FrustrationOnTeamworkingAggregate aggregate = new FrustrationOnTeamworkingAggregate();
+        aggregate.setContribution("user1", getFormVariables(1.0, 0.5));
+        aggregate.removeContribution("user1");
+
+        Assert.assertEquals(aggregate.getContributors(), 0);
+        Assert.assertTrue(aggregate.getAverages(FORM_LABEL, FrustrationOnTeamworkingEventConverter.FORM_ORGANIZATION_OUTPUT).isEmpty());
+    }
+
+    @Test
+    public void averageOnlyUsersWithVariable() {
+        final FrustrationOnTeamworkingAggregate aggregate = new FrustrationOnTeamworkingAggregate();
+        aggregate.setContribution("user1", getFormVariables(1.0, 0.5));
+        final Map<String, Map<String, Object>> formVariables = new HashMap<>();
+        formVariables.put(ELEMENT, new HashMap<>(Map.of("Frustration1", 0.0)));
+        aggregate.setContribution("user2", formVariables);
+
+        final Map<String, Map<String, Object>> statistics = aggregate.getStatistics(FORM_LABEL,
+                FrustrationOnTeamworkingEventConverter.FORM_ORGANIZATION_OUTPUT);
+        Assert.assertEquals((Double) statistics.get(OUTPUT_ELEMENT).get("Frustration1"), 0.5, DELTA);
+        Assert.assertEquals((Double) statistics.get(OUTPUT_ELEMENT).get("Frustration1" + FrustrationOnTeamworkingAccumulator.COUNT_SUFFIX), 2.0, DELTA);
+        //Only user1 has the second variable.
+        Assert.assertEquals((Double) statistics.get(OUTPUT_ELEMENT).get("Frustration2"), 0.5, DELTA);
+        Assert.assertEquals((Double) statistics.get(OUTPUT_ELEMENT).get("Frustration2" + FrustrationOnTeamworkingAccumulator.COUNT_SUFFIX), 1.0, DELTA);
+    }
+
+    @Test
+    public void spreadAfterReplaceContribution() {
+        final FrustrationOnTeamworkingAggregate aggregate = new FrustrationOnTeamworkingAggregate();
+        aggregate.setContribution("user1", getFormVariables(1.0, 0.5));
+        aggregate.setContribution("user2", getFormVariables(0.0, 0.25));
+        aggregate.setContribution("user3", getFormVariables(0.5, 0.25));
+        //The maximum is retracted.
+        aggregate.setContribution("user1", getFormVariables(0.25, 0.25));
+
+        final Map<String, Object> statistics = aggregate.getStatistics(FORM_LABEL,
+                FrustrationOnTeamworkingEventConverter.FORM_ORGANIZATION_OUTPUT).get(OUTPUT_ELEMENT);
+        Assert.assertEquals((Double) statistics.get("Frustration1"), 0.25, DELTA);
+        Assert.assertEquals((Double) statistics.get("Frustration1" + FrustrationOnTeamworkingAccumulator.STANDARD_DEVIATION_SUFFIX),
+                Math.sqrt(0.125 / 3), DELTA);
+        Assert.assertEquals((Double) statistics.get("Frustration1" + FrustrationOnTeamworkingAccumulator.MIN_SUFFIX), 0.0, DELTA);
+        Assert.assertEquals((Double) statistics.get("Frustration1" + FrustrationOnTeamworkingAccumulator.MAX_SUFFIX), 0.5, DELTA);
+        Assert.assertEquals((Double) statistics.get("Frustration2" + FrustrationOnTeamworkingAccumulator.STANDARD_DEVIATION_SUFFIX), 0.0, DELTA);
+    }
+
+    @Test
+    public void subsetContributions() {
+        final FrustrationOnTeamworkingAggregate organizationAggregate = new FrustrationOnTeamworkingAggregate();
+        organizationAggregate.setContribution("user1", getFormVariables(1.0, 0.5));
+        organizationAggregate.setContribution("user2", getFormVariables(0.0, 0.25));
+        organizationAggregate.setContribution("user3", getFormVariables(0.5, 0.25));
+
+        final FrustrationOnTeamworkingAggregate teamAggregate = organizationAggregate.subset(Set.of("user1", "user3")::contains);
+        Assert.assertEquals(teamAggregate.getContributors(), 2);
+        Assert.assertEquals(teamAggregate.getCreatedAt(), organizationAggregate.getCreatedAt());
+        Assert.assertEquals((Double) teamAggregate.getAverages(FORM_LABEL, FrustrationOnTeamworkingEventConverter.FORM_ORGANIZATION_OUTPUT)
+                .get(OUTPUT_ELEMENT).get("Frustration1"), 0.75, DELTA);
+
+        //Both aggregates are updated independently.
+        teamAggregate.setContribution("user1", getFormVariables(0.0, 0.5));
+        Assert.assertEquals((Double) teamAggregate.getAverages(FORM_LABEL, FrustrationOnTeamworkingEventConverter.FORM_ORGANIZATION_OUTPUT)
+                .get(OUTPUT_ELEMENT).get("Frustration1"), 0.25, DELTA);
+        Assert.assertEquals((Double) organizationAggregate.getAverages(FORM_LABEL, FrustrationOnTeamworkingEventConverter.FORM_ORGANIZATION_OUTPUT)
+                .get(OUTPUT_ELEMENT).get("Frustration1"), 0.5, DELTA);
+    }
+
+    @Test
+    public void writeAndRead() throws IOException {
+        final FrustrationOnTeamworkingAggregate aggregate = new FrustrationOnTeamworkingAggregate();
+        aggregate.setContribution("user1", getFormVariables(1.0, 0.5));
+        aggregate.setContribution("user2", getFormVariables(0.0, 0.25));
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            aggregate.write(output);
+        }
+        final FrustrationOnTeamworkingAggregate restoredAggregate;
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            restoredAggregate = FrustrationOnTeamworkingAggregate.read(input);
+        }
+
+        Assert.assertEquals(restoredAggregate.getContributors(), aggregate.getContributors());
+        Assert.assertEquals(restoredAggregate.getCreatedAt(), aggregate.getCreatedAt());
+        Assert.assertEquals(restoredAggregate.getAverages(FORM_LABEL, FrustrationOnTeamworkingEventConverter.FORM_ORGANIZATION_OUTPUT),
+                aggregate.getAverages(FORM_LABEL, FrustrationOnTeamworkingEventConverter.FORM_ORGANIZATION_OUTPUT));
+        //User contributions are also restored.
+        restoredAggregate.removeContribution("user2");
+        Assert.assertEquals((Double) restoredAggregate.getAverages(FORM_LABEL, FrustrationOnTeamworkingEventConverter.FORM_ORGANIZATION_OUTPUT)
+                .get(OUTPUT_ELEMENT).get("Frustration1"), 1.0, DELTA);
+    }
+
+    @Test
+    public void parseContribution() throws FileNotFoundException, JsonProcessingException {
+        final String formJson = FileReader.getResource(DROOLS_FORM_FILE_PATH, StandardCharsets.UTF_8);
+
+        final FrustrationOnTeamworkingAggregate parsedAggregate = new FrustrationOnTeamworkingAggregate();
+        parsedAggregate.parseContribution("user1", formJson);
+
+        final FrustrationOnTeamworkingAggregate deserializedAggregate = new FrustrationOnTeamworkingAggregate();
+        deserializedAggregate.setContribution("user1", DroolsSubmittedForm.getFromJson(formJson).getFormVariables());
+
+        final Map<String, Map<String, Object>> averages = parsedAggregate.getAverages(FORM_LABEL,
+                FrustrationOnTeamworkingEventConverter.FORM_ORGANIZATION_OUTPUT);
+        Assert.assertFalse(averages.isEmpty());
+        Assert.assertEquals(averages, deserializedAggregate.getAverages(FORM_LABEL, FrustrationOnTeamworkingEventConverter.FORM_ORGANIZATION_OUTPUT));
+    }
+}
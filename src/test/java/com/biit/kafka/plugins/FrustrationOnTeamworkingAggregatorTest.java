@@ -0,0 +1,103 @@
+package com.biit.kafka.plugins;
+
+/*-
+ * #%L
+ * Frustration on Teamworking Organization Statistics Generator
+ * %%
+ * Copyright (C) 2024 - 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+@Test(groups = "aggregation")
+public class FrustrationOnTeamworkingAggregatorTest {
+    private static final String FORM_LABEL = "The 5 Frustrations on Teamworking";
+    private static final int FACTS = 5000;
+    private static final int USERS = 2000;
+    private static final int QUESTIONS = 15;
+    private static final int FRUSTRATIONS = 5;
+    private static final int MAX_SCORE = 4;
+    private static final long SEED = 42;
+    private static final double DELTA = 0.000001;
+
+    private List<String[]> getFacts() {
+        final Random random = new Random(SEED);
+        final List<String[]> facts = new ArrayList<>();
+        for (int i = 0; i < FACTS; i++) {
+            final StringBuilder formVariables = new StringBuilder("{\"formVariables\":{");
+            for (int question = 0; question < QUESTIONS; question++) {
+                formVariables.append(String.format(Locale.ROOT, "\"/DroolsSubmittedForm[@label='%s']/question%d\":{\"Score\":%d},",
+                        FORM_LABEL, question, random.nextInt(MAX_SCORE)));
+            }
+            formVariables.append(String.format(Locale.ROOT, "\"/DroolsSubmittedForm[@label='%s']\":{", FORM_LABEL));
+            for (int frustration = 1; frustration <= FRUSTRATIONS; frustration++) {
+                formVariables.append(String.format(Locale.ROOT, "\"Frustration%d\":%s%s", frustration, random.nextDouble(),
+                        frustration < FRUSTRATIONS ? "," : ""));
+            }
+            formVariables.append("}}}");
+            facts.add(new String[]{"user" + random.nextInt(USERS), formVariables.toString()});
+        }
+        return facts;
+    }
+
+    @Test
+    public void parallelAggregationMatchesSequential() throws JsonProcessingException {
+        final List<String[]> facts = getFacts();
+        final FrustrationOnTeamworkingAggregator sequentialAggregator = new FrustrationOnTeamworkingAggregator(0, Integer.MAX_VALUE, 1, 1);
+        final FrustrationOnTeamworkingAggregator parallelAggregator = new FrustrationOnTeamworkingAggregator(0, 1, 4, 1);
+        try {
+            final FrustrationOnTeamworkingAggregate sequentialAggregate = sequentialAggregator.aggregate(facts, fact -> fact[0], fact -> fact[1]);
+            final FrustrationOnTeamworkingAggregate parallelAggregate = parallelAggregator.aggregate(facts, fact -> fact[0], fact -> fact[1]);
+
+            Assert.assertEquals(parallelAggregate.getContributors(), sequentialAggregate.getContributors());
+            final Map<String, Map<String, Object>> sequentialAverages = sequentialAggregate.getAverages(FORM_LABEL,
+                    FrustrationOnTeamworkingEventConverter.FORM_ORGANIZATION_OUTPUT);
+            final Map<String, Map<String, Object>> parallelAverages = parallelAggregate.getAverages(FORM_LABEL,
+                    FrustrationOnTeamworkingEventConverter.FORM_ORGANIZATION_OUTPUT);
+            Assert.assertEquals(parallelAverages.keySet(), sequentialAverages.keySet());
+            sequentialAverages.forEach((element, variables) -> variables.forEach((variable, value) ->
+                    Assert.assertEquals((Double) parallelAverages.get(element).get(variable), (Double) value, DELTA)));
+        } finally {
+            sequentialAggregator.destroy();
+            parallelAggregator.destroy();
+        }
+    }
+
+    @Test
+    public void unitsAreKeptWhenOrganizationIsRemoved() {
+        final FrustrationOnTeamworkingAggregator aggregator = new FrustrationOnTeamworkingAggregator(0, Integer.MAX_VALUE, 1, 1);
+        aggregator.setOrganizationAggregate("organization", new FrustrationOnTeamworkingAggregate());
+        aggregator.setUnitAggregate("organization", "unit1", new FrustrationOnTeamworkingAggregate());
+        aggregator.setUnit("organization", "user1", "unit1");
+
+        //Processed by other instance.
+        aggregator.removeOrganization("organization");
+        Assert.assertNull(aggregator.getUnitAggregate("organization", "unit1"));
+        Assert.assertEquals(aggregator.getUnit("organization", "user1"), "unit1");
+        aggregator.clear();
+        Assert.assertEquals(aggregator.getUnit("organization", "user1"), "unit1");
+        aggregator.destroy();
+    }
+}
@@ -0,0 +1,125 @@
+package com.biit.kafka.plugins;
+
+/*-
+ * #%L
+ * Frustration on Teamworking Organization Statistics Generator
+ * %%
+ * Copyright (C) 2024 - 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Test(groups = "cache")
+public class FrustrationOnTeamworkingCacheTest {
+    private static final long TIME_TO_LIVE_MILLIS = 50;
+    private static final int THREADS = 8;
+    private static final long WAIT_MILLIS = 100;
+
+    @Test
+    public void cachedUntilExpired() throws InterruptedException {
+        final FrustrationOnTeamworkingCache<String, String> cache = new FrustrationOnTeamworkingCache<>(10, TIME_TO_LIVE_MILLIS);
+        final AtomicInteger loads = new AtomicInteger();
+        Assert.assertEquals(cache.get("key", key -> key + loads.incrementAndGet()), "key1");
+        Assert.assertEquals(cache.get("key", key -> key + loads.incrementAndGet()), "key1");
+        Thread.sleep(TIME_TO_LIVE_MILLIS * 2);
+        Assert.assertEquals(cache.get("key", key -> key + loads.incrementAndGet()), "key2");
+        Assert.assertEquals(loads.get(), 2);
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvicted() {
+        final FrustrationOnTeamworkingCache<String, String> cache = new FrustrationOnTeamworkingCache<>(2, TimeUnit.MINUTES.toMillis(1));
+        final AtomicInteger loads = new AtomicInteger();
+        cache.get("key1", key -> key + loads.incrementAndGet());
+        cache.get("key2", key -> key + loads.incrementAndGet());
+        cache.get("key1", key -> key + loads.incrementAndGet());
+        cache.get("key3", key -> key + loads.incrementAndGet());
+        Assert.assertEquals(cache.size(), 2);
+        //Still cached, as used after 'key2'.
+        Assert.assertEquals(cache.get("key1", key -> key + loads.incrementAndGet()), "key11");
+        Assert.assertEquals(loads.get(), 3);
+    }
+
+    @Test
+    public void nullIsNotCached() {
+        final FrustrationOnTeamworkingCache<String, String> cache = new FrustrationOnTeamworkingCache<>(10, TimeUnit.MINUTES.toMillis(1));
+        Assert.assertNull(cache.get("key", key -> null));
+        Assert.assertEquals(cache.size(), 0);
+        Assert.assertEquals(cache.get("key", key -> "value"), "value");
+    }
+
+    @Test
+    public void concurrentRequestsAreCollapsed() throws InterruptedException, ExecutionException {
+        final FrustrationOnTeamworkingCache<String, String> cache = new FrustrationOnTeamworkingCache<>(10, TimeUnit.MINUTES.toMillis(1));
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                results.add(executor.submit(() -> cache.get("key", key -> {
+                    loads.incrementAndGet();
+                    loading.countDown();
+                    try {
+                        //Slow source, so the other requests arrive meanwhile.
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return "value";
+                })));
+            }
+            Assert.assertTrue(loading.await(1, TimeUnit.SECONDS));
+            Thread.sleep(WAIT_MILLIS);
+            release.countDown();
+            for (Future<String> result : results) {
+                Assert.assertEquals(result.get(), "value");
+            }
+            Assert.assertEquals(loads.get(), 1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void expiredValueIsUsedIfLoaderFails() throws InterruptedException {
+        final FrustrationOnTeamworkingCache<String, String> cache = new FrustrationOnTeamworkingCache<>(10, TIME_TO_LIVE_MILLIS);
+        cache.get("key", key -> "value");
+        Thread.sleep(TIME_TO_LIVE_MILLIS * 2);
+        Assert.assertEquals(cache.get("key", key -> {
+            throw new IllegalStateException("Source not available");
+        }), "value");
+
+        //Not after an invalidation.
+        cache.invalidateAll();
+        Assert.assertThrows(IllegalStateException.class, () -> cache.get("key", key -> {
+            throw new IllegalStateException("Source not available");
+        }));
+    }
+}
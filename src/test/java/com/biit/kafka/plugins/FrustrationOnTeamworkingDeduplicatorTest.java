@@ -0,0 +1,92 @@
+package com.biit.kafka.plugins;
+
+/*-
+ * #%L
+ * Frustration on Teamworking Organization Statistics Generator
+ * %%
+ * Copyright (C) 2024 - 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.kafka.events.Event;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Test(groups = "deduplication")
+public class FrustrationOnTeamworkingDeduplicatorTest {
+    private static final String ORGANIZATION = "organization";
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 3, 12, 10, 30);
+
+    private Event getEvent(UUID messageId, UUID sessionId, String createdBy, LocalDateTime createdAt) {
+        final Event event = new Event();
+        event.setMessageId(messageId);
+        event.setSessionId(sessionId);
+        event.setCreatedBy(createdBy);
+        event.setCreatedAt(createdAt);
+        return event;
+    }
+
+    @Test
+    public void duplicatedMessage() {
+        final FrustrationOnTeamworkingDeduplicator deduplicator = new FrustrationOnTeamworkingDeduplicator(10, 60, true);
+        final UUID messageId = UUID.randomUUID();
+        final Event event = getEvent(messageId, UUID.randomUUID(), "user1", NOW);
+        Assert.assertFalse(deduplicator.isDuplicate(event));
+        //Not processed yet.
+        Assert.assertFalse(deduplicator.isDuplicate(event));
+        deduplicator.processed(event, ORGANIZATION);
+        Assert.assertTrue(deduplicator.isDuplicate(getEvent(messageId, UUID.randomUUID(), "user1", NOW)));
+        Assert.assertFalse(deduplicator.isDuplicate(getEvent(UUID.randomUUID(), UUID.randomUUID(), "user1", NOW)));
+    }
+
+    @Test
+    public void duplicatedSessionWithoutMessageId() {
+        final FrustrationOnTeamworkingDeduplicator deduplicator = new FrustrationOnTeamworkingDeduplicator(10, 60, true);
+        final UUID sessionId = UUID.randomUUID();
+        final Event event = getEvent(null, sessionId, "user1", NOW);
+        Assert.assertFalse(deduplicator.isDuplicate(event));
+        deduplicator.processed(event, ORGANIZATION);
+        Assert.assertTrue(deduplicator.isDuplicate(getEvent(null, sessionId, "user1", NOW)));
+        //Same session, new submission.
+        Assert.assertFalse(deduplicator.isDuplicate(getEvent(null, sessionId, "user1", NOW.plusMinutes(1))));
+    }
+
+    @Test
+    public void limitedSize() {
+        final FrustrationOnTeamworkingDeduplicator deduplicator = new FrustrationOnTeamworkingDeduplicator(1, 60, true);
+        final UUID messageId = UUID.randomUUID();
+        deduplicator.processed(getEvent(messageId, null, "user1", NOW), ORGANIZATION);
+        Assert.assertTrue(deduplicator.isDuplicate(getEvent(messageId, null, "user1", NOW)));
+        deduplicator.processed(getEvent(UUID.randomUUID(), null, "user1", NOW), ORGANIZATION);
+        //Already forgotten.
+        Assert.assertFalse(deduplicator.isDuplicate(getEvent(messageId, null, "user1", NOW)));
+    }
+
+    @Test
+    public void staleSubmission() {
+        final FrustrationOnTeamworkingDeduplicator deduplicator = new FrustrationOnTeamworkingDeduplicator(10, 60, true);
+        final Event event = getEvent(UUID.randomUUID(), null, "user1", NOW);
+        Assert.assertFalse(deduplicator.isStale(event, ORGANIZATION));
+        Assert.assertFalse(deduplicator.isStale(getEvent(UUID.randomUUID(), null, "user1", NOW.minusMinutes(1)), ORGANIZATION));
+        deduplicator.processed(event, ORGANIZATION);
+        Assert.assertTrue(deduplicator.isStale(getEvent(UUID.randomUUID(), null, "user1", NOW.minusMinutes(1)), ORGANIZATION));
+        Assert.assertFalse(deduplicator.isStale(getEvent(UUID.randomUUID(), null, "user2", NOW.minusMinutes(1)), ORGANIZATION));
+        Assert.assertFalse(deduplicator.isStale(getEvent(UUID.randomUUID(), null, "user1", NOW.plusMinutes(1)), ORGANIZATION));
+    }
+}
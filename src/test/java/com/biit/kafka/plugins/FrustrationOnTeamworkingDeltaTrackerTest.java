@@ -0,0 +1,99 @@
+package com.biit.kafka.plugins;
+
+/*-
+ * #%L
+ * Frustration on Teamworking Organization Statistics Generator
+ * %%
+ * Copyright (C) 2024 - 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Test(groups = "results")
+public class FrustrationOnTeamworkingDeltaTrackerTest {
+    private static final String KEY = "organization:test";
+    private static final String ELEMENT = "/DroolsSubmittedForm[@label='" + FrustrationOnTeamworkingEventConverter.FORM_ORGANIZATION_OUTPUT + "']";
+    private static final int SNAPSHOT_INTERVAL = 2;
+
+    private Map<String, Map<String, Object>> getFormVariables(double frustration1, double frustration2) {
+        final Map<String, Object> variables = new HashMap<>();
+        variables.put("Frustration1", frustration1);
+        variables.put("Frustration2", frustration2);
+        final Map<String, Map<String, Object>> formVariables = new HashMap<>();
+        formVariables.put(ELEMENT, variables);
+        return formVariables;
+    }
+
+    @Test
+    public void onlyChangedVariables() {
+        final FrustrationOnTeamworkingDeltaTracker tracker = new FrustrationOnTeamworkingDeltaTracker(SNAPSHOT_INTERVAL);
+        final FrustrationOnTeamworkingResultDelta snapshot = tracker.next(KEY, getFormVariables(1.0, 0.5));
+        Assert.assertTrue(snapshot.isSnapshot());
+        Assert.assertEquals(snapshot.getSequence(), 0);
+        Assert.assertEquals(snapshot.getFormVariables().get(ELEMENT).size(), 2);
+
+        final FrustrationOnTeamworkingResultDelta delta = tracker.next(KEY, getFormVariables(1.0, 0.25));
+        Assert.assertFalse(delta.isSnapshot());
+        Assert.assertEquals(delta.getSequence(), 1);
+        Assert.assertEquals(delta.getFormVariables().get(ELEMENT), Map.of("Frustration2", 0.25));
+
+        //Nothing has changed.
+        Assert.assertNull(tracker.next(KEY, getFormVariables(1.0, 0.25)));
+    }
+
+    @Test
+    public void removedVariables() {
+        final FrustrationOnTeamworkingDeltaTracker tracker = new FrustrationOnTeamworkingDeltaTracker(SNAPSHOT_INTERVAL);
+        tracker.next(KEY, getFormVariables(1.0, 0.5));
+        final Map<String, Map<String, Object>> formVariables = getFormVariables(1.0, 0.5);
+        formVariables.get(ELEMENT).remove("Frustration2");
+
+        final FrustrationOnTeamworkingResultDelta delta = tracker.next(KEY, formVariables);
+        Assert.assertTrue(delta.getFormVariables().get(ELEMENT).containsKey("Frustration2"));
+        Assert.assertNull(delta.getFormVariables().get(ELEMENT).get("Frustration2"));
+    }
+
+    @Test
+    public void periodicSnapshot() {
+        final FrustrationOnTeamworkingDeltaTracker tracker = new FrustrationOnTeamworkingDeltaTracker(SNAPSHOT_INTERVAL);
+        Assert.assertTrue(tracker.next(KEY, getFormVariables(1.0, 0.5)).isSnapshot());
+        Assert.assertFalse(tracker.next(KEY, getFormVariables(0.5, 0.5)).isSnapshot());
+        Assert.assertFalse(tracker.next(KEY, getFormVariables(0.25, 0.5)).isSnapshot());
+        final FrustrationOnTeamworkingResultDelta snapshot = tracker.next(KEY, getFormVariables(0.0, 0.5));
+        Assert.assertTrue(snapshot.isSnapshot());
+        Assert.assertEquals(snapshot.getSequence(), 3);
+
+        //A lost delta forces a snapshot.
+        tracker.invalidate(KEY);
+        Assert.assertTrue(tracker.next(KEY, getFormVariables(0.0, 0.25)).isSnapshot());
+    }
+
+    @Test
+    public void snapshotAfterRebalance() {
+        final FrustrationOnTeamworkingDeltaTracker tracker = new FrustrationOnTeamworkingDeltaTracker(SNAPSHOT_INTERVAL);
+        Assert.assertTrue(tracker.next(KEY, getFormVariables(1.0, 0.5)).isSnapshot());
+        tracker.invalidateAll();
+        final FrustrationOnTeamworkingResultDelta snapshot = tracker.next(KEY, getFormVariables(1.0, 0.5));
+        Assert.assertTrue(snapshot.isSnapshot());
+        Assert.assertEquals(snapshot.getSequence(), 1);
+        Assert.assertEquals(snapshot.getFormVariables().get(ELEMENT).size(), 2);
+    }
+}
@@ -0,0 +1,82 @@
+package com.biit.kafka.plugins;
+
+/*-
+ * #%L
+ * Frustration on Teamworking Organization Statistics Generator
+ * %%
+ * Copyright (C) 2024 - 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.kafka.events.Event;
+import com.biit.kafka.events.EventCustomProperties;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.springframework.kafka.support.Acknowledgment;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+@Test(groups = "repartition")
+public class FrustrationOnTeamworkingEventControllerTest {
+    private static final String TOPIC = "frustration";
+    private static final String ORGANIZATION = "organization";
+
+    private Event getEvent() {
+        final Event event = new Event();
+        event.setTag(FrustrationOnTeamworkingEventController.FORM_LABEL);
+        event.setCustomProperty(EventCustomProperties.FACT_TYPE, FrustrationOnTeamworkingEventController.DROOLS_RESULT_EVENT_TYPE);
+        event.setOrganization(ORGANIZATION);
+        return event;
+    }
+
+    private FrustrationOnTeamworkingRepartitioner getRepartitioner(CompletableFuture<Void> forward) {
+        final FrustrationOnTeamworkingRepartitioner repartitioner = Mockito.mock(FrustrationOnTeamworkingRepartitioner.class);
+        Mockito.when(repartitioner.isEnabled()).thenReturn(true);
+        Mockito.doReturn(forward).when(repartitioner).forward(Mockito.any(), Mockito.any());
+        return repartitioner;
+    }
+
+    private FrustrationOnTeamworkingBatchEventConsumerListener getBatchListener(FrustrationOnTeamworkingRepartitioner repartitioner) {
+        final FrustrationOnTeamworkingBatchEventConsumerListener batchEventConsumerListener = new FrustrationOnTeamworkingBatchEventConsumerListener();
+        new FrustrationOnTeamworkingEventController(null, batchEventConsumerListener, null, null, TOPIC, "", true, false, null, null, null, null,
+                null, null, null, repartitioner, new FrustrationOnTeamworkingMetrics(null));
+        return batchEventConsumerListener;
+    }
+
+    @Test
+    public void forwardedEvents() {
+        final FrustrationOnTeamworkingRepartitioner repartitioner = getRepartitioner(CompletableFuture.completedFuture(null));
+        final Acknowledgment acknowledgment = Mockito.mock(Acknowledgment.class);
+        getBatchListener(repartitioner).eventsListener(List.of(new ConsumerRecord<>(TOPIC, 0, 0L, ORGANIZATION, getEvent())), acknowledgment);
+        Mockito.verify(repartitioner).forward(Mockito.any(), Mockito.eq(ORGANIZATION));
+        Mockito.verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    public void failedForwardIsThrown() {
+        final FrustrationOnTeamworkingBatchEventConsumerListener batchEventConsumerListener =
+                getBatchListener(getRepartitioner(CompletableFuture.failedFuture(new IllegalStateException("Broker not available"))));
+        final Acknowledgment acknowledgment = Mockito.mock(Acknowledgment.class);
+        //The container must not commit the record.
+        Assert.assertThrows(CompletionException.class, () ->
+                batchEventConsumerListener.eventsListener(List.of(new ConsumerRecord<>(TOPIC, 0, 0L, ORGANIZATION, getEvent())), acknowledgment));
+        Mockito.verify(acknowledgment, Mockito.never()).acknowledge();
+    }
+}
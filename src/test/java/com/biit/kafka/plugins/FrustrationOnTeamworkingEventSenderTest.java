@@ -0,0 +1,97 @@
+package com.biit.kafka.plugins;
+
+/*-
+ * #%L
+ * Frustration on Teamworking Organization Statistics Generator
+ * %%
+ * Copyright (C) 2024 - 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.drools.form.DroolsForm;
+import com.biit.kafka.events.Event;
+import com.biit.kafka.events.KafkaEventTemplate;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testng.annotations.Test;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+@Test(groups = "send")
+public class FrustrationOnTeamworkingEventSenderTest {
+    private static final String TOPIC = "results";
+    private static final String KEY = "organization:organization";
+    private static final int RETRIES = 2;
+    private static final long WAIT_MILLIS = 500;
+
+    private KafkaEventTemplate getKafkaTemplate(CompletableFuture<?> result, CompletableFuture<?>... nextResults) {
+        final KafkaEventTemplate kafkaTemplate = Mockito.mock(KafkaEventTemplate.class);
+        Mockito.doReturn(result, (Object[]) nextResults).when(kafkaTemplate).send(Mockito.eq(TOPIC), Mockito.eq(KEY), Mockito.any());
+        return kafkaTemplate;
+    }
+
+    private FrustrationOnTeamworkingEventSender getSender(KafkaEventTemplate kafkaTemplate) {
+        final FrustrationOnTeamworkingEventConverter converter = Mockito.mock(FrustrationOnTeamworkingEventConverter.class);
+        //Each result is a different event.
+        Mockito.when(converter.getEvent(Mockito.any(DroolsForm.class), Mockito.any(), Mockito.any())).thenAnswer(invocation -> new Event());
+        final FrustrationOnTeamworkingEventSender sender = new FrustrationOnTeamworkingEventSender(kafkaTemplate, converter,
+                new FrustrationOnTeamworkingMetrics(null), "form", 0);
+        ReflectionTestUtils.setField(sender, "sendTopic", TOPIC);
+        ReflectionTestUtils.setField(sender, "retries", RETRIES);
+        ReflectionTestUtils.setField(sender, "retryBackoffMillis", 1L);
+        return sender;
+    }
+
+    private void send(FrustrationOnTeamworkingEventSender sender) {
+        sender.sendResultEvents(KEY, Mockito.mock(DroolsForm.class), "user1", "organization", UUID.randomUUID(), null);
+    }
+
+    private CompletableFuture<?> getFailure() {
+        return CompletableFuture.failedFuture(new IllegalStateException("Broker not available"));
+    }
+
+    @Test
+    public void failedResultIsRetried() {
+        final KafkaEventTemplate kafkaTemplate = getKafkaTemplate(getFailure(), CompletableFuture.completedFuture(null));
+        final FrustrationOnTeamworkingEventSender sender = getSender(kafkaTemplate);
+        send(sender);
+        Mockito.verify(kafkaTemplate, Mockito.after(WAIT_MILLIS).times(2)).send(Mockito.eq(TOPIC), Mockito.eq(KEY), Mockito.any());
+        sender.destroy();
+    }
+
+    @Test
+    public void retriesAreLimited() {
+        final KafkaEventTemplate kafkaTemplate = getKafkaTemplate(getFailure());
+        final FrustrationOnTeamworkingEventSender sender = getSender(kafkaTemplate);
+        send(sender);
+        Mockito.verify(kafkaTemplate, Mockito.after(WAIT_MILLIS).times(RETRIES + 1)).send(Mockito.eq(TOPIC), Mockito.eq(KEY), Mockito.any());
+        sender.destroy();
+    }
+
+    @Test
+    public void supersededResultIsNotRetried() {
+        final CompletableFuture<?> firstResult = new CompletableFuture<>();
+        final KafkaEventTemplate kafkaTemplate = getKafkaTemplate(firstResult, CompletableFuture.completedFuture(null));
+        final FrustrationOnTeamworkingEventSender sender = getSender(kafkaTemplate);
+        send(sender);
+        //A newer result of the same key is sent before the first one fails.
+        send(sender);
+        firstResult.completeExceptionally(new IllegalStateException("Broker not available"));
+        Mockito.verify(kafkaTemplate, Mockito.after(WAIT_MILLIS).times(2)).send(Mockito.eq(TOPIC), Mockito.eq(KEY), Mockito.any());
+        sender.destroy();
+    }
+}
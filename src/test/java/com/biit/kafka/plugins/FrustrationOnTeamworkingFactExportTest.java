@@ -0,0 +1,111 @@
+package com.biit.kafka.plugins;
+
+/*-
+ * #%L
+ * Frustration on Teamworking Organization Statistics Generator
+ * %%
+ * Copyright (C) 2024 - 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Test(groups = "backfill")
+public class FrustrationOnTeamworkingFactExportTest {
+    private static final String FORM_LABEL = "The 5 Frustrations on Teamworking";
+    private static final String FACT_TYPE = "DroolsResultForm";
+    private static final String APPLICATION = "BaseFormDroolsEngine";
+    private static final String GROUP = "frustration";
+
+    private String getFact(String organization, String createdBy, String createdAt, String elementName, String value) {
+        return "{\"organization\":\"" + organization + "\",\"createdBy\":\"" + createdBy + "\",\"createdAt\":\"" + createdAt
+                + "\",\"elementName\":\"" + elementName + "\",\"factType\":\"" + FACT_TYPE + "\",\"value\":\"" + value + "\"}";
+    }
+
+    private Path write(List<String> lines) throws IOException {
+        final Path file = Files.createTempFile("frustration", ".jsonl");
+        file.toFile().deleteOnExit();
+        Files.write(file, lines, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    @Test
+    public void latestSubmissionByUser() throws IOException {
+        final Path file = write(List.of(
+                getFact("organization1", "user1", "2025-03-12T10:30:00", FORM_LABEL, "first"),
+                getFact("organization1", "user2", "2025-03-12T10:30:00", FORM_LABEL, "second"),
+                getFact("organization1", "user1", "2025-03-13T10:30:00", FORM_LABEL, "third"),
+                //Older submission exported later.
+                getFact("organization1", "user2", "2025-03-11T10:30:00", FORM_LABEL, "fourth"),
+                getFact("organization2", "user1", "2025-03-12T10:30:00", FORM_LABEL, "fifth"),
+                getFact("organization1", "user1", "2025-03-14T10:30:00", "Other form", "sixth"),
+                "invalid line",
+                ""));
+
+        //Small chunks, so each line is read by a different task.
+        final Map<String, List<FrustrationOnTeamworkingFactExport.Submission>> submissions =
+                new FrustrationOnTeamworkingFactExport(FORM_LABEL, FACT_TYPE, null, null, 8).readSubmissions(file);
+        Assert.assertEquals(submissions.size(), 2);
+        Assert.assertEquals(submissions.get("organization1").size(), 2);
+        Assert.assertEquals(submissions.get("organization1").get(0).getValue(), "second");
+        Assert.assertEquals(submissions.get("organization1").get(1).getValue(), "third");
+        Assert.assertEquals(submissions.get("organization2").get(0).getValue(), "fifth");
+    }
+
+    @Test
+    public void otherApplicationsAndGroups() throws IOException {
+        final String fact = getFact("organization1", "user1", "2025-03-12T10:30:00", FORM_LABEL, "first");
+        final Path file = write(List.of(
+                fact.replace("}", ",\"application\":\"" + APPLICATION + "\",\"group\":\"" + GROUP + "\"}"),
+                fact.replace("first", "second").replace("user1", "user2").replace("}", ",\"application\":\"Other application\"}"),
+                fact.replace("first", "third").replace("user1", "user3").replace("}", ",\"group\":\"other\"}")));
+
+        final Map<String, List<FrustrationOnTeamworkingFactExport.Submission>> submissions =
+                new FrustrationOnTeamworkingFactExport(FORM_LABEL, FACT_TYPE, APPLICATION, GROUP, 1).readSubmissions(file);
+        Assert.assertEquals(submissions.get("organization1").size(), 1);
+        Assert.assertEquals(submissions.get("organization1").get(0).getValue(), "first");
+
+        //Without filters, all groups and applications.
+        Assert.assertEquals(new FrustrationOnTeamworkingFactExport(FORM_LABEL, FACT_TYPE, null, null, 1).readSubmissions(file)
+                .get("organization1").size(), 3);
+    }
+
+    @Test
+    public void membersByTeam() throws IOException {
+        final Path file = write(List.of(
+                "{\"organization\":\"organization1\",\"teamId\":\"1\",\"team\":\"team1\",\"username\":\"user1\"}",
+                "{\"organization\":\"organization1\",\"teamId\":\"2\",\"team\":\"team2\",\"username\":\"user1\"}",
+                "{\"organization\":\"organization1\",\"teamId\":\"1\",\"team\":\"team1\",\"username\":\"user2\"}"));
+
+        final Collection<FrustrationOnTeamworkingFactExport.Team> teams = new FrustrationOnTeamworkingFactExport(FORM_LABEL, FACT_TYPE, null, null, 2)
+                .readTeams(file);
+        Assert.assertEquals(teams.size(), 2);
+        for (FrustrationOnTeamworkingFactExport.Team team : teams) {
+            Assert.assertEquals(team.getOrganization(), "organization1");
+            Assert.assertEquals(team.getMembers(), "1".equals(team.getId()) ? Set.of("user1", "user2") : Set.of("user1"));
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.biit.kafka.plugins;
+
+/*-
+ * #%L
+ * Frustration on Teamworking Organization Statistics Generator
+ * %%
+ * Copyright (C) 2024 - 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.rest.exceptions.NotFoundException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+@Test(groups = "resilience")
+public class FrustrationOnTeamworkingGuardTest {
+    private static final String DEPENDENCY = "dependency";
+
+    private String fail() {
+        throw new IllegalStateException("Dependency failure");
+    }
+
+    @Test
+    public void circuitOpensAfterFailures() {
+        final FrustrationOnTeamworkingGuard guard = new FrustrationOnTeamworkingGuard(DEPENDENCY, 0, 0, 2, 60000,
+                new FrustrationOnTeamworkingMetrics(null));
+        Assert.assertEquals(guard.call(() -> "ok"), "ok");
+        Assert.assertThrows(IllegalStateException.class, () -> guard.call(this::fail));
+        Assert.assertThrows(IllegalStateException.class, () -> guard.call(this::fail));
+        //Dependency is not called anymore.
+        Assert.assertThrows(FrustrationOnTeamworkingGuard.UnavailableException.class, () -> guard.call(() -> "ok"));
+        Assert.assertEquals(guard.getState(), 2);
+    }
+
+    @Test
+    public void notFoundDoesNotOpenCircuit() {
+        final FrustrationOnTeamworkingGuard guard = new FrustrationOnTeamworkingGuard(DEPENDENCY, 0, 0, 1, 60000,
+                new FrustrationOnTeamworkingMetrics(null));
+        Assert.assertThrows(NotFoundException.class, () -> guard.call(() -> {
+            throw new NotFoundException("No user found");
+        }));
+        Assert.assertEquals(guard.getState(), 0);
+        Assert.assertEquals(guard.call(() -> "ok"), "ok");
+    }
+
+    @Test
+    public void circuitClosesAfterTrialCall() throws InterruptedException {
+        final FrustrationOnTeamworkingGuard guard = new FrustrationOnTeamworkingGuard(DEPENDENCY, 0, 0, 1, 10,
+                new FrustrationOnTeamworkingMetrics(null));
+        Assert.assertThrows(IllegalStateException.class, () -> guard.call(this::fail));
+        Assert.assertEquals(guard.getState(), 2);
+        Thread.sleep(20);
+        Assert.assertEquals(guard.call(() -> "ok"), "ok");
+        Assert.assertEquals(guard.getState(), 0);
+    }
+
+    @Test
+    public void timeout() {
+        final FrustrationOnTeamworkingGuard guard = new FrustrationOnTeamworkingGuard(DEPENDENCY, 50, 0, 0, 60000,
+                new FrustrationOnTeamworkingMetrics(null));
+        try {
+            Assert.assertThrows(FrustrationOnTeamworkingGuard.UnavailableException.class, () -> guard.call(() -> {
+                try {
+                    Thread.sleep(5000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "late";
+            }));
+        } finally {
+            guard.shutdown();
+        }
+    }
+
+    @Test
+    public void bulkheadRejectsCalls() throws InterruptedException {
+        final FrustrationOnTeamworkingGuard guard = new FrustrationOnTeamworkingGuard(DEPENDENCY, 0, 1, 1, 60000,
+                new FrustrationOnTeamworkingMetrics(null));
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> guard.call(() -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "slow";
+            }));
+            Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+            Assert.assertThrows(FrustrationOnTeamworkingGuard.UnavailableException.class, () -> guard.call(() -> "ok"));
+            //Rejected calls have not reached the dependency.
+            Assert.assertEquals(guard.getState(), 0);
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+}
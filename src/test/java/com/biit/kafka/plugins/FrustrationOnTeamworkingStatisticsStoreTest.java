@@ -0,0 +1,169 @@
+package com.biit.kafka.plugins;
+
+/*-
+ * #%L
+ * Frustration on Teamworking Organization Statistics Generator
+ * %%
+ * Copyright (C) 2024 - 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.apache.kafka.common.TopicPartition;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+@Test(groups = "store")
+public class FrustrationOnTeamworkingStatisticsStoreTest {
+    private static final String TOPIC = "frustration";
+    private static final String ORGANIZATION = "organization";
+    private static final String FORM_LABEL = "The 5 Frustrations on Teamworking";
+    private static final String ELEMENT = "/DroolsSubmittedForm[@label='" + FORM_LABEL + "']";
+    private static final String OUTPUT_LABEL = FrustrationOnTeamworkingEventConverter.FORM_ORGANIZATION_OUTPUT;
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 3, 12, 10, 30);
+    private static final long SNAPSHOT_SECONDS = 3600;
+
+    private Map<String, Map<String, Object>> getFormVariables(double frustration1) {
+        final Map<String, Object> variables = new HashMap<>();
+        variables.put("Frustration1", frustration1);
+        final Map<String, Map<String, Object>> formVariables = new HashMap<>();
+        formVariables.put(ELEMENT, variables);
+        return formVariables;
+    }
+
+    private Path getSnapshotFile() throws IOException {
+        final Path directory = Files.createTempDirectory("frustration");
+        directory.toFile().deleteOnExit();
+        final Path file = directory.resolve("statistics.snapshot");
+        file.toFile().deleteOnExit();
+        return file;
+    }
+
+    private FrustrationOnTeamworkingTrends getTrends() {
+        return new FrustrationOnTeamworkingTrends(2, 0, 0, "");
+    }
+
+    @Test
+    public void disabledWithoutFile() {
+        final FrustrationOnTeamworkingAggregator aggregator = new FrustrationOnTeamworkingAggregator(0, Integer.MAX_VALUE, 1, 1);
+        final FrustrationOnTeamworkingStatisticsStore store = new FrustrationOnTeamworkingStatisticsStore(aggregator, getTrends(), "", SNAPSHOT_SECONDS);
+        Assert.assertFalse(store.isEnabled());
+        store.received(TOPIC, 0, 1);
+        store.snapshot();
+        Assert.assertNull(store.pollRestoredOffset(new TopicPartition(TOPIC, 0)));
+        store.destroy();
+        aggregator.destroy();
+    }
+
+    @Test
+    public void offsetBeforeFirstPendingEvent() throws IOException {
+        final Path file = getSnapshotFile();
+        final FrustrationOnTeamworkingAggregator aggregator = new FrustrationOnTeamworkingAggregator(0, Integer.MAX_VALUE, 1, 1);
+        final FrustrationOnTeamworkingStatisticsStore store = new FrustrationOnTeamworkingStatisticsStore(aggregator, getTrends(),
+                file.toString(), SNAPSHOT_SECONDS);
+        //Partition 0 has an event still in process.
+        store.received(TOPIC, 0, 5);
+        store.received(TOPIC, 0, 6);
+        store.received(TOPIC, 0, 7);
+        store.processed(TOPIC, 0, 5);
+        store.processed(TOPIC, 0, 7);
+        //Partition 1 has all events processed.
+        store.received(TOPIC, 1, 10);
+        store.received(TOPIC, 1, 11);
+        store.processed(TOPIC, 1, 11);
+        store.processed(TOPIC, 1, 10);
+        store.snapshot();
+        store.destroy();
+        aggregator.destroy();
+
+        final FrustrationOnTeamworkingAggregator restoredAggregator = new FrustrationOnTeamworkingAggregator(0, Integer.MAX_VALUE, 1, 1);
+        final FrustrationOnTeamworkingStatisticsStore restoredStore = new FrustrationOnTeamworkingStatisticsStore(restoredAggregator, getTrends(),
+                file.toString(), SNAPSHOT_SECONDS);
+        Assert.assertEquals(restoredStore.pollRestoredOffset(new TopicPartition(TOPIC, 0)), Long.valueOf(5));
+        Assert.assertEquals(restoredStore.pollRestoredOffset(new TopicPartition(TOPIC, 1)), Long.valueOf(11));
+        //Only moved once.
+        Assert.assertNull(restoredStore.pollRestoredOffset(new TopicPartition(TOPIC, 0)));
+        Assert.assertNull(restoredStore.pollRestoredOffset(new TopicPartition(TOPIC, 2)));
+        restoredStore.destroy();
+        restoredAggregator.destroy();
+    }
+
+    @Test
+    public void snapshotRoundTrip() throws IOException {
+        final Path file = getSnapshotFile();
+        final FrustrationOnTeamworkingAggregator aggregator = new FrustrationOnTeamworkingAggregator(0, Integer.MAX_VALUE, 1, 1);
+        final FrustrationOnTeamworkingTrends trends = getTrends();
+        final FrustrationOnTeamworkingStatisticsStore store = new FrustrationOnTeamworkingStatisticsStore(aggregator, trends, file.toString(),
+                SNAPSHOT_SECONDS);
+        final FrustrationOnTeamworkingAggregate organizationAggregate = new FrustrationOnTeamworkingAggregate();
+        organizationAggregate.setContribution("user1", getFormVariables(1.0));
+        organizationAggregate.setContribution("user2", getFormVariables(0.5));
+        aggregator.setOrganizationAggregate(ORGANIZATION, organizationAggregate);
+        final FrustrationOnTeamworkingAggregate teamAggregate = new FrustrationOnTeamworkingAggregate();
+        teamAggregate.setContribution("user1", getFormVariables(1.0));
+        aggregator.setTeamAggregate("1", teamAggregate);
+        aggregator.setUnit(ORGANIZATION, "user1", "unit1");
+        final Long index = trends.getOrganizationTrend(ORGANIZATION, FrustrationOnTeamworkingTrend.Period.DAILY)
+                .add(NOW, "user1", getFormVariables(0.25));
+        store.received(TOPIC, 0, 3);
+        store.processed(TOPIC, 0, 3);
+        store.snapshot();
+        store.destroy();
+        aggregator.destroy();
+
+        final FrustrationOnTeamworkingAggregator restoredAggregator = new FrustrationOnTeamworkingAggregator(0, Integer.MAX_VALUE, 1, 1);
+        final FrustrationOnTeamworkingTrends restoredTrends = getTrends();
+        final FrustrationOnTeamworkingStatisticsStore restoredStore = new FrustrationOnTeamworkingStatisticsStore(restoredAggregator, restoredTrends,
+                file.toString(), SNAPSHOT_SECONDS);
+        Assert.assertEquals(restoredAggregator.getOrganizationAggregate(ORGANIZATION).getContributors(), 2);
+        Assert.assertEquals(restoredAggregator.getOrganizationAggregate(ORGANIZATION).getAverages(FORM_LABEL, OUTPUT_LABEL),
+                organizationAggregate.getAverages(FORM_LABEL, OUTPUT_LABEL));
+        Assert.assertEquals(restoredAggregator.getTeamAggregate("1").getContributors(), 1);
+        Assert.assertEquals(restoredAggregator.getUnit(ORGANIZATION, "user1"), "unit1");
+        final FrustrationOnTeamworkingTrend restoredTrend = restoredTrends.getOrganizationTrend(ORGANIZATION,
+                FrustrationOnTeamworkingTrend.Period.DAILY);
+        Assert.assertEquals(restoredTrend.getFormVariables(index, FORM_LABEL, OUTPUT_LABEL, false),
+                trends.getOrganizationTrend(ORGANIZATION, FrustrationOnTeamworkingTrend.Period.DAILY).getFormVariables(index, FORM_LABEL,
+                        OUTPUT_LABEL, false));
+        //The record applied before the snapshot is replayed.
+        restoredTrend.add(NOW, "user1", getFormVariables(0.25));
+        Assert.assertEquals(restoredTrend.getFormVariables(index, FORM_LABEL, OUTPUT_LABEL, false),
+                trends.getOrganizationTrend(ORGANIZATION, FrustrationOnTeamworkingTrend.Period.DAILY).getFormVariables(index, FORM_LABEL,
+                        OUTPUT_LABEL, false));
+        restoredStore.destroy();
+        restoredAggregator.destroy();
+    }
+
+    @Test
+    public void invalidFileIsIgnored() throws IOException {
+        final Path file = getSnapshotFile();
+        Files.writeString(file, "not a snapshot");
+        final FrustrationOnTeamworkingAggregator aggregator = new FrustrationOnTeamworkingAggregator(0, Integer.MAX_VALUE, 1, 1);
+        final FrustrationOnTeamworkingStatisticsStore store = new FrustrationOnTeamworkingStatisticsStore(aggregator, getTrends(),
+                file.toString(), SNAPSHOT_SECONDS);
+        Assert.assertTrue(store.isEnabled());
+        Assert.assertTrue(aggregator.getOrganizationAggregates().isEmpty());
+        Assert.assertNull(store.pollRestoredOffset(new TopicPartition(TOPIC, 0)));
+        store.destroy();
+        aggregator.destroy();
+    }
+}
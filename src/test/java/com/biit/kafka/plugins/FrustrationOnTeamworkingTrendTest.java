@@ -0,0 +1,158 @@
+package com.biit.kafka.plugins;
+
+/*-
+ * #%L
+ * Frustration on Teamworking Organization Statistics Generator
+ * %%
+ * Copyright (C) 2024 - 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+@Test(groups = "aggregation")
+public class FrustrationOnTeamworkingTrendTest {
+    private static final String FORM_LABEL = "The 5 Frustrations on Teamworking";
+    private static final String OUTPUT_LABEL = FrustrationOnTeamworkingEventConverter.FORM_ORGANIZATION_OUTPUT + " Daily";
+    private static final String ELEMENT = "/DroolsSubmittedForm[@label='" + FORM_LABEL + "']";
+    private static final String OUTPUT_ELEMENT = "/DroolsSubmittedForm[@label='" + OUTPUT_LABEL + "']";
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 3, 12, 10, 30);
+    private static final double DELTA = 0.000001;
+
+    private Map<String, Map<String, Object>> getFormVariables(double frustration1) {
+        final Map<String, Object> variables = new HashMap<>();
+        variables.put("Frustration1", frustration1);
+        final Map<String, Map<String, Object>> formVariables = new HashMap<>();
+        formVariables.put(ELEMENT, variables);
+        return formVariables;
+    }
+
+    private double getAverage(Map<String, Map<String, Object>> formVariables) {
+        return (Double) formVariables.get(OUTPUT_ELEMENT).get("Frustration1");
+    }
+
+    @Test
+    public void periodStarts() {
+        //2025-03-12 is wednesday.
+        final LocalDate date = NOW.toLocalDate();
+        Assert.assertEquals(FrustrationOnTeamworkingTrend.Period.DAILY.getStart(FrustrationOnTeamworkingTrend.Period.DAILY.getIndex(date)), date);
+        Assert.assertEquals(FrustrationOnTeamworkingTrend.Period.WEEKLY.getStart(FrustrationOnTeamworkingTrend.Period.WEEKLY.getIndex(date)),
+                LocalDate.of(2025, 3, 10));
+        Assert.assertEquals(FrustrationOnTeamworkingTrend.Period.MONTHLY.getStart(FrustrationOnTeamworkingTrend.Period.MONTHLY.getIndex(date)),
+                LocalDate.of(2025, 3, 1));
+        Assert.assertEquals(FrustrationOnTeamworkingTrend.Period.WEEKLY.getIndex(LocalDate.of(2025, 3, 16)) + 1,
+                FrustrationOnTeamworkingTrend.Period.WEEKLY.getIndex(LocalDate.of(2025, 3, 17)));
+    }
+
+    @Test
+    public void submissionsByDay() {
+        final FrustrationOnTeamworkingTrend trend = new FrustrationOnTeamworkingTrend(FrustrationOnTeamworkingTrend.Period.DAILY, 2);
+        final Long today = trend.add(NOW, "user1", getFormVariables(1.0));
+        trend.add(NOW.plusHours(1), "user2", getFormVariables(0.5));
+        final Long yesterday = trend.add(NOW.minusDays(1), "user1", getFormVariables(0.0));
+
+        Assert.assertEquals(getAverage(trend.getFormVariables(today, FORM_LABEL, OUTPUT_LABEL, false)), 0.75, DELTA);
+        Assert.assertEquals(getAverage(trend.getFormVariables(yesterday, FORM_LABEL, OUTPUT_LABEL, false)), 0.0, DELTA);
+        final SortedMap<LocalDate, Map<String, Map<String, Object>>> series = trend.getSeries(FORM_LABEL, OUTPUT_LABEL, false);
+        Assert.assertEquals(List.copyOf(series.keySet()), List.of(NOW.toLocalDate().minusDays(1), NOW.toLocalDate()));
+    }
+
+    @Test
+    public void oldPeriodsAreDiscarded() {
+        final FrustrationOnTeamworkingTrend trend = new FrustrationOnTeamworkingTrend(FrustrationOnTeamworkingTrend.Period.DAILY, 2);
+        final Long firstDay = trend.add(NOW, "user1", getFormVariables(1.0));
+        trend.add(NOW.plusDays(2), "user1", getFormVariables(0.5));
+
+        //Replaced by the new day.
+        Assert.assertNull(trend.getFormVariables(firstDay, FORM_LABEL, OUTPUT_LABEL, false));
+        //Older than the kept periods.
+        Assert.assertNull(trend.add(NOW, "user1", getFormVariables(1.0)));
+        Assert.assertEquals(trend.getSeries(FORM_LABEL, OUTPUT_LABEL, false).size(), 1);
+    }
+
+    @Test
+    public void writeAndRead() throws IOException {
+        final FrustrationOnTeamworkingTrend trend = new FrustrationOnTeamworkingTrend(FrustrationOnTeamworkingTrend.Period.DAILY, 3);
+        trend.add(NOW.minusDays(2), "user1", getFormVariables(0.0));
+        trend.add(NOW.minusDays(1), "user1", getFormVariables(0.5));
+        final Long today = trend.add(NOW, "user1", getFormVariables(1.0));
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            trend.write(output);
+        }
+        final FrustrationOnTeamworkingTrend restoredTrend;
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            //Buffer is now smaller.
+            restoredTrend = FrustrationOnTeamworkingTrend.read(input, FrustrationOnTeamworkingTrend.Period.DAILY, 2);
+        }
+
+        Assert.assertEquals(restoredTrend.getSeries(FORM_LABEL, OUTPUT_LABEL, true).size(), 2);
+        Assert.assertEquals(restoredTrend.getFormVariables(today, FORM_LABEL, OUTPUT_LABEL, true),
+                trend.getFormVariables(today, FORM_LABEL, OUTPUT_LABEL, true));
+    }
+
+    @Test
+    public void latestSubmissionByUser() {
+        final FrustrationOnTeamworkingTrend trend = new FrustrationOnTeamworkingTrend(FrustrationOnTeamworkingTrend.Period.DAILY, 2);
+        final Long yesterday = trend.add(NOW.minusDays(1), "user1", getFormVariables(0.0));
+        final Long today = trend.add(NOW, "user1", getFormVariables(1.0));
+        trend.add(NOW, "user2", getFormVariables(0.5));
+        //Replaces the previous submission of the same day only.
+        trend.add(NOW.plusHours(1), "user1", getFormVariables(0.0));
+
+        Assert.assertEquals(getAverage(trend.getFormVariables(today, FORM_LABEL, OUTPUT_LABEL, false)), 0.25, DELTA);
+        Assert.assertEquals(getAverage(trend.getFormVariables(yesterday, FORM_LABEL, OUTPUT_LABEL, false)), 0.0, DELTA);
+    }
+
+    @Test
+    public void replayedRecordsAreNotCountedTwice() throws IOException {
+        final FrustrationOnTeamworkingTrend trend = new FrustrationOnTeamworkingTrend(FrustrationOnTeamworkingTrend.Period.DAILY, 3);
+        trend.add(NOW, "user1", getFormVariables(1.0));
+        trend.add(NOW, "user2", getFormVariables(0.0));
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            trend.write(output);
+        }
+        final FrustrationOnTeamworkingTrend restoredTrend;
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            restoredTrend = FrustrationOnTeamworkingTrend.read(input, FrustrationOnTeamworkingTrend.Period.DAILY, 3);
+        }
+
+        //Records included on the snapshot are replayed.
+        final Long today = restoredTrend.add(NOW, "user1", getFormVariables(1.0));
+        Assert.assertNotNull(today);
+        restoredTrend.add(NOW, "user2", getFormVariables(0.0));
+        Assert.assertEquals(getAverage(restoredTrend.getFormVariables(today, FORM_LABEL, OUTPUT_LABEL, false)), 0.5, DELTA);
+        //New record.
+        restoredTrend.add(NOW, "user3", getFormVariables(1.0));
+        Assert.assertEquals(getAverage(restoredTrend.getFormVariables(today, FORM_LABEL, OUTPUT_LABEL, false)), 2.0 / 3, DELTA);
+    }
+}